@@ -0,0 +1,140 @@
+/**
+ * Solves many boards against one dictionary, which is only loaded once. The boards go through a pipeline:
+ * the calling thread parses them, a pool of workers solves them, and a writer thread prints the results
+ * in the same order as the boards were read, as soon as each one is ready.
+ * The queue between the stages is bounded, so a slow writer holds back the parsing instead of letting
+ * solved boards pile up in memory.
+ *
+ * @author Paul Macfarlane
+ * @version 1.0
+ */
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class BatchSolver
+{
+    private static final Future<String> END = CompletableFuture.completedFuture(null); // marks the end of the boards
+
+    private final Lexicon dictionary; // the words to look for in every board
+    private final int workers; // how many boards are solved at the same time
+    private final int capacity; // how many boards can be waiting between the stages
+
+    /**
+     * Creates a solver with one worker per core
+     * @param dictionary the words to look for in every board
+     */
+    public BatchSolver(Lexicon dictionary){
+        this(dictionary, Runtime.getRuntime().availableProcessors(), 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param dictionary the words to look for in every board
+     * @param workers how many boards are solved at the same time
+     * @param capacity how many boards can be parsed but not yet written out
+     */
+    public BatchSolver(Lexicon dictionary, int workers, int capacity){
+        if (workers < 1 || capacity < 1) throw new IllegalArgumentException("workers and capacity must be at least 1");
+        this.dictionary = dictionary;
+        this.workers = workers;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Solves every board of boards, and writes the words found in each one to out. A block of lines that is
+     * not a board is reported by its number in place of its words, and the boards after it are still solved.
+     * Once solving a board fails, no more boards are read, and the boards already being solved are abandoned.
+     * @param boards where to read the boards from
+     * @param out where to write the results
+     * @return the number of boards read
+     * @throws IOException if reading the boards fails
+     * @throws InterruptedException if the thread is interrupted while waiting for the pipeline
+     */
+    public int run(BoardReader boards, PrintStream out) throws IOException, InterruptedException {
+        final BlockingQueue<Future<String>> pending = new ArrayBlockingQueue<Future<String>>(capacity);
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        Writer writer = new Writer(pending, out);
+        writer.start();
+
+        int count =0;
+        try {
+            String[] lines = boards.readBoard();
+            while (lines != null && writer.failure == null){ // after a failure the rest would not be written anyway
+                final int number = ++count;
+                Future<String> result;
+                try {
+                    final Bookworm book = Bookworm.fromLines(lines);
+                    result = pool.submit(() -> format(number, book.solve(dictionary)));
+                } catch (IllegalArgumentException e) { // a bad block only costs its own board
+                    result = CompletableFuture.completedFuture("Board " + number + " is not a board: " + e.getMessage() + "\n");
+                }
+                pending.put(result); // waits if the queue is full
+                lines = boards.readBoard();
+            }
+        } finally {
+            pending.put(END);
+            writer.join();
+            if (writer.failure != null) pool.shutdownNow();
+            else pool.shutdown();
+        }
+        if (writer.failure != null) throw new IllegalStateException("Solving a board failed", writer.failure);
+        return count;
+    }
+
+    /**
+     * @return the text written out for a board: a heading, then the found words in alphabetical order
+     */
+    private static String format(int number, Set<String> found){
+        StringBuilder text = new StringBuilder();
+        text.append("Board ").append(number).append(" has ").append(found.size()).append(" words:\n");
+        for (String word : new TreeSet<String>(found)){
+            text.append(word).append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Last stage of the pipeline. Takes the boards in the order they were read, and writes out each one
+     * as soon as it has been solved.
+     */
+    private static class Writer extends Thread
+    {
+        private final BlockingQueue<Future<String>> pending;
+        private final PrintStream out;
+        private volatile Throwable failure; // the first error of a worker, if any
+
+        Writer(BlockingQueue<Future<String>> pending, PrintStream out){
+            super("bookworm-writer");
+            this.pending = pending;
+            this.out = out;
+        }
+
+        @Override
+        public void run(){
+            try {
+                Future<String> next = pending.take();
+                while (next != END){
+                    try {
+                        if (failure == null){
+                            out.print(next.get());
+                            out.flush();
+                        }
+                    } catch (ExecutionException e) {
+                        failure = e.getCause(); // keep taking from the queue, so the parser is never left waiting
+                    }
+                    next = pending.take();
+                }
+            } catch (InterruptedException e) {
+                failure = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Quick test that rules out most words that are not on a board before any search is done. It is built once
+ * per board, and holds how many of each tile the board has and which pairs of tiles are next to each other.
+ * A word is rejected if it needs more of a tile than the board has, or if two tiles in a row of the word
+ * are never next to each other on the board. Words that pass may still not be on the board; words that
+ * are rejected never are.
+ *
+ * @author Paul Macfarlane
+ * @version 1.0
+ */
+import java.util.concurrent.atomic.LongAdder;
+
+public class BoardFilter
+{
+    private static final int MAX_COUNT = 15; // a tile count is kept in 4 bits while a word is checked
+
+    private final int[] counts = new int[WordTrie.TILES]; // counts[tile] is how many cells hold tile
+    private final long[] pairs = new long[(WordTrie.TILES * WordTrie.TILES + 63) / 64]; // bit a*27+b is set if a is next to b
+    private final LongAdder checked = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param book the board to build the filter for
+     */
+    public BoardFilter(Bookworm book){
+        HexGrid grid = book.grid();
+        for (int cell =0; cell < grid.size(); cell++){
+            int tile = book.tile(cell);
+            if (tile < 0) continue;
+            counts[tile]++;
+            for (int next : grid.neighbours(cell)){
+                if (book.tile(next) >= 0){
+                    int pair = tile * WordTrie.TILES + book.tile(next);
+                    pairs[pair >>> 6] |= 1L << pair;
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks word in time linear in its length, without allocating anything.
+     * @param word the word to check
+     * @return false if the word can not be on the board, true if it might be
+     */
+    public boolean mightContain(String word){
+        checked.increment();
+        if (!passes(word)){
+            rejected.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private boolean passes(String word){
+        if (word.length() == 0) return false;
+        // the number of each tile used so far, 4 bits per tile: tiles 0 to 15 in low, 16 to 26 in high
+        long low =0;
+        long high =0;
+        int previous = -1;
+        int i =0;
+        while (i < word.length()){
+            int tile = WordTrie.tileAt(word, i);
+            if (tile < 0 || counts[tile] == 0) return false;
+            int used;
+            if (tile < 16){
+                used = (int) (low >>> (tile * 4)) & 0xF;
+                if (used < MAX_COUNT) low += 1L << (tile * 4);
+            }
+            else {
+                used = (int) (high >>> ((tile - 16) * 4)) & 0xF;
+                if (used < MAX_COUNT) high += 1L << ((tile - 16) * 4);
+            }
+            if (used < MAX_COUNT && used + 1 > counts[tile]) return false; // more of this tile than the board has
+            if (previous >= 0){
+                int pair = previous * WordTrie.TILES + tile;
+                if ((pairs[pair >>> 6] & (1L << pair)) == 0) return false; // these two tiles are never next to each other
+            }
+            previous = tile;
+            i += (tile == WordTrie.QU) ? 2 : 1;
+        }
+        return true;
+    }
+
+    /**
+     * @return how many words have been checked
+     */
+    public long checked(){
+        return checked.sum();
+    }
+
+    /**
+     * @return how many words were rejected without a search
+     */
+    public long rejected(){
+        return rejected.sum();
+    }
+
+    /**
+     * @return the share of checked words that were rejected, from 0 to 1
+     */
+    public double rejectionRate(){
+        long total = checked();
+        return (total == 0) ? 0 : (double) rejected() / total;
+    }
+
+    @Override
+    public String toString(){
+        return "filter rejected " + rejected() + " of " + checked() + " words (" + Math.round(100 * rejectionRate()) + "%)";
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Reads an input file in a single pass. The file starts with the lines of characters of the board
+ * (one line per column, 7 for the standard board) followed by a blank line, and every line after that
+ * is a word to look for.
+ * The words are handed out one at a time, so they never all need to be held in memory.
+ *
+ * @author Paul Macfarlane
+ * @version 1.0
+ */
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BoardReader implements Closeable
+{
+    /** The number of lines (columns) of a standard board */
+    public static final int COLUMNS = 7;
+    private static final int BUFFER_SIZE = 1 << 16; // large buffer, since dictionaries can have millions of lines
+
+    private final BufferedReader in;
+
+    /**
+     * Opens fileName for reading
+     * @param fileName name of the file to read board characters and words to find
+     * @throws FileNotFoundException if fileName does not match a file in the directory of java file
+     */
+    public BoardReader(String fileName) throws FileNotFoundException {
+        // the input is plain letters, so a single byte charset is enough and the cheapest to decode
+        this(new InputStreamReader(new FileInputStream(fileName), StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Reads from an already open reader
+     * @param reader where to read the board and words from
+     */
+    public BoardReader(Reader reader){
+        in = new BufferedReader(reader, BUFFER_SIZE);
+    }
+
+    /**
+     * Reads the lines of the next board, up to the blank line after them (or the end of the input).
+     * Blank lines before the board are skipped.
+     * @return the lines of the board, or null if there is nothing left to read
+     * @throws IOException if the reader fails
+     */
+    public String[] readBoard() throws IOException {
+        String line = nextLine();
+        if (line == null) return null;
+        List<String> lines = new ArrayList<String>(COLUMNS);
+        while (line != null && !line.isEmpty()){
+            lines.add(line);
+            line = in.readLine();
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    /**
+     * @return the next word to look for, or null when there are no words left. Blank lines are skipped
+     * @throws IOException if the reader fails
+     */
+    public String nextWord() throws IOException {
+        return nextLine();
+    }
+
+    private String nextLine() throws IOException {
+        String line = in.readLine();
+        while (line != null && line.isEmpty()){
+            line = in.readLine();
+        }
+        return line;
+    }
+
+    /**
+     * Reads only the board of fileName.
+     * @param fileName name of the file to read board characters from
+     * @return the lines of the board
+     * @throws FileNotFoundException if fileName does not match a file in the directory of java file
+     */
+    public static String[] readBoard(String fileName) throws FileNotFoundException {
+        BoardReader reader = new BoardReader(fileName);
+        try {
+            String[] lines = reader.readBoard();
+            if (lines == null) throw new IllegalArgumentException(fileName + " does not contain a board");
+            return lines;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + fileName, e);
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Override
+    public void close(){
+        try {
+            in.close();
+        } catch (IOException e) {
+            // nothing useful can be done if closing fails
+        }
+    }
+}
@@ -7,426 +7,889 @@
  * @version 1.0
  */
 import java.util.Scanner;
-import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 
 public class Bookworm
 {
-    private String[][] board = new String[8][7]; // will hold the board game characters (stored as strings)
-    private String[] dictionary; // this consists of the words to check for existence in board
-    private String[] line = new String[7]; // used to temporarily store each line of characters to fill the board
-    private ArrayList<String> found = new ArrayList<String>(); //arrayList to hold the words that were found on the board
+    private String[] board; // will hold the board game characters (stored as strings), board[cell]
+    private static final int CHUNK = 1 << 16; // how many words main reads before checking them in parallel
+    private static final int TASK_SIZE = 256; // how many words a parallel task checks without splitting
+    private static final int MAX_PATHS = 1 << 16; // the most paths checkSorted keeps for the prefixes of a word
+    private static final boolean SORTED = Boolean.getBoolean("bookworm.sorted"); // main uses checkSorted instead of checkAll
+    private static final String OUTPUT = System.getProperty("bookworm.output", "text"); // the format main writes (see ResultSink)
+    private static final boolean FOUND_ONLY = Boolean.getBoolean("bookworm.foundOnly"); // main only writes the words found
+    private static final boolean ANY_SHAPE = Boolean.getBoolean("bookworm.anyShape"); // boards read from input can be any shape
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final HexGrid grid; // the layout of the board cells
+    private int[] tiles; // tiles[cell] is the tile code of each cell of the board (see WordTrie), or -1 if it is empty
+    private String fingerprint; // the tiles of the board as text, worked out when first needed
+    private volatile BoardFilter filter; // rules out words before they are searched for, built when first needed
 
     /**
-     * One argument constructor for Bookworm. Initializes the board, dictionary, and line arrays
-     * @param fileName, name of the file to read board characters and words to find
+     * One argument constructor for Bookworm. Initializes the board from the first lines of fileName.
+     * The words after the board are not read; use a BoardReader to stream them.
+     * @param fileName, name of the file to read board characters from
      * @throws FileNotFoundException if fileName does not match a file in the directory of java file
      */
     public Bookworm(String fileName) throws FileNotFoundException {
+        this(BoardReader.readBoard(fileName));
+    }
 
-        File inputFile = new File(fileName);
-        int fileLines =0; //scan through 1 time to see the amount of words we will need to store in an array
-        try {
-            Scanner in = new Scanner (inputFile);
-
-            // count how many lines are in the file
-            while (in.hasNext())
-            {
-                in.nextLine();
-                fileLines++;
-            } 
-            dictionary = new String[fileLines-8];
-            //-8 because there are 7 lines for each column of the game,and one that is a space
-            in.close();
-            in.reset();
-        } catch (FileNotFoundException e) {
-            System.out.println ("File not found in directory");
-            System.exit(0);
+    /**
+     * Creates a standard board from its 7 lines of characters.
+     * @param line the lines of the board, one for each column from left to right
+     * @throws IllegalArgumentException if there are not 7 lines, or a line is longer than its column
+     */
+    public Bookworm(String[] line){
+        this(HexGrid.BOOKWORM, line);
+    }
+
+    /**
+     * Creates a board of any shape from its lines of characters. The characters of a line fill its column
+     * from the top down, and a '#' is used for a place that is not a cell of the grid (or a cell left empty).
+     * Cells after the end of a line are left empty.
+     * @param grid the layout of the board cells
+     * @param line the lines of the board, one for each column from left to right
+     * @throws IllegalArgumentException if the number of lines is not the number of columns, or a line does not fit in its column
+     */
+    public Bookworm(HexGrid grid, String[] line){
+        if (line.length != grid.cols()){
+            throw new IllegalArgumentException("A board has " + grid.cols() + " lines, not " + line.length);
         }
-        // now scan through a second time
-        File inputFile1 = new File(fileName);
-        try {
-            Scanner inFile = new Scanner(inputFile1);
-            //read in each line of characters
-            for (int i =0; i<=6; i++){
-                line[i] = inFile.nextLine();
+        this.grid = grid;
+        board = new String[grid.size()];
+        Arrays.fill(board, "");
+        for (int col =0; col < grid.cols(); col++){
+            int bottom = (grid.columnEnd(col) > grid.columnStart(col)) ? grid.row(grid.columnEnd(col) - 1) : -1;
+            if (line[col].length() > bottom + 1 && line[col].charAt(bottom + 1) != '#'){
+                throw new IllegalArgumentException("Column " + col + " is too long: " + line[col]);
+            }
+            for (int row =0; row < line[col].length(); row++){
+                String letter = line[col].substring(row,row+1);
+                int cell = grid.cell(row, col);
+                if (letter.equals("#")){ // a gap in the board
+                    continue;
+                }
+                else if (cell < 0){
+                    throw new IllegalArgumentException("Row " + row + " of column " + col + " is not part of the board");
+                }
+                else if(letter.equals("Q")){ // take care of the 'Q' case
+                    board[cell] = "QU";
+                }
+                else {
+                    board[cell]= letter;
+                }
             }
-            inFile.nextLine(); // skip the blank line
+        }
+
+        // work out the tile code of each cell, so the trie search does not have to compare strings
+        tiles = new int[grid.size()];
+        for (int cell =0; cell < tiles.length; cell++){
+            tiles[cell] = WordTrie.tileOf(board[cell]);
+        }
+        // a printing loop for the sake if visualization of the board
+        /*
+        for (int row =0; row < grid.rows();row++){
+        for (int col =0; col < grid.cols(); col++){
+        int cell = grid.cell(row, col);
+        if (cell < 0){
+        System.out.print( "    " );
+        }
+        else{
+        System.out.print("["+ (board[cell].isEmpty() ? " " : board[cell]) +"]");
+        }
+        }
+        System.out.println();
+        }
+         */
+    }
 
-            // fill the even columns
-            for (int col =0; col <7;col = col +2){      
+    /**
+     * Creates a board from lines read from an input. Only the standard board is accepted, unless
+     * -Dbookworm.anyShape=true is set, in which case lines that do not fit the standard board get a
+     * board of their own shape (see HexGrid.forColumns).
+     * @param line the lines of the board, one for each column from left to right
+     * @return the board
+     * @throws IllegalArgumentException if the lines are not a board
+     */
+    public static Bookworm fromLines(String[] line){
+        if (ANY_SHAPE && !fits(HexGrid.BOOKWORM, line)){
+            return new Bookworm(HexGrid.forColumns(line), line);
+        }
+        return new Bookworm(line);
+    }
 
-                for (int row =0; row < line[col].length();  row++){               
-                    if(line[col].substring(row,row+1).equals("Q")){ // take care of the 'Q' case
-                        board[row][col] = "QU";
-                    }
-                    else {
-                        board[row][col]= line[col].substring(row,row+1);
-                    }
+    /**
+     * @return true if every character of line is in a cell of grid, or is a '#'
+     */
+    private static boolean fits(HexGrid grid, String[] line){
+        if (line.length != grid.cols()) return false;
+        for (int col =0; col < line.length; col++){
+            for (int row =0; row < line[col].length(); row++){
+                if (line[col].charAt(row) != '#' && !grid.isCell(row, col)) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the layout of the board cells
+     */
+    public HexGrid grid(){
+        return grid;
+    }
+
+    /**
+     * @param cell the id of a cell (see HexGrid)
+     * @return the tile code of the cell (see WordTrie), or -1 if it is empty
+     */
+    public int tile(int cell){
+        return tiles[cell];
+    }
+
+    /**
+     * Plays a move: takes the tiles of path off the board, lets the tiles above them in each column drop
+     * down, and fills the gaps at the top of the columns with newTiles. The columns are filled from left
+     * to right, each from the top down, and a 'Q' becomes the 'QU' tile. If newTiles runs out, the rest of
+     * the gaps are left empty. The board must not be searched by other threads while this runs.
+     * Places that are not cells of the grid are skipped, so tiles drop past the gaps of a masked board.
+     * @param path a bitmask of the cells to remove (bit n is cell n)
+     * @param newTiles the letters that drop in from the top
+     * @return a bitmask of the cells whose tile is different after the move
+     * @throws IllegalStateException if the board has more than 64 cells, which a bitmask can not hold
+     */
+    public long removeTiles(long path, String newTiles){
+        if (tiles.length > 64) throw new IllegalStateException("Moves need a board of at most 64 cells");
+        long changed =0;
+        int next =0; // the next letter of newTiles to use
+        for (int col =0; col < grid.cols(); col++){
+            int top = grid.columnStart(col);
+            int bottom = grid.columnEnd(col) - 1;
+            // go up the column, moving every kept tile down below the removed ones
+            int to = bottom;
+            for (int from = bottom; from >= top; from--){
+                if ((path & (1L << from)) == 0){
+                    board[to] = board[from];
+                    to--;
                 }
             }
+            // the cells still left at the top are new, and are filled from the top down
+            for (int cell = top; cell <= to; cell++){
+                if (next < newTiles.length()){
+                    String letter = newTiles.substring(next, next+1);
+                    board[cell] = letter.equals("Q") ? "QU" : letter; // take care of the 'Q' case
+                    next++;
+                }
+                else {
+                    board[cell] = "";
+                }
+            }
+            for (int cell = top; cell <= bottom; cell++){
+                int tile = WordTrie.tileOf(board[cell]);
+                if (tile != tiles[cell]){
+                    tiles[cell] = tile;
+                    changed |= 1L << cell;
+                }
+            }
+        }
+        if (changed != 0){ // the tiles are different, so these have to be worked out again
+            fingerprint = null;
+            filter = null;
+        }
+        return changed;
+    }
+
+    /**
+     * @return a short text that is the same for two boards if, and only if, they have the same tile in every cell.
+     *         Each cell is one character: 'A' to 'Z', '*' for the 'QU' tile and '.' for an empty cell.
+     *         Boards that are not the standard shape start with their shape (see HexGrid.shape) and a ':'
+     */
+    public String fingerprint(){
+        String result = fingerprint;
+        if (result == null){
+            char[] text = new char[tiles.length];
+            for (int cell =0; cell < tiles.length; cell++){
+                if (tiles[cell] == WordTrie.QU) text[cell] = '*';
+                else if (tiles[cell] < 0) text[cell] = '.';
+                else text[cell] = (char) ('A' + tiles[cell]);
+            }
+            result = new String(text);
+            if (grid != HexGrid.BOOKWORM) result = grid.shape() + ":" + result;
+            fingerprint = result;
+        }
+        return result;
+    }
+
+    /**
+     * Finds every word of dictionary that is on the board, walking the board once instead of once per word.
+     * @param dictionary the words to look for
+     * @return the words that were found
+     */
+    public Set<String> solve(Iterable<String> dictionary){
+        return solve(new WordTrie(dictionary));
+    }
+
+    /**
+     * Finds every word of the lexicon that is on the board. Every path of the board is followed from each
+     * cell for as long as the tiles along it are a prefix of some word, so the work depends on the size
+     * of the board rather than the size of the dictionary. The paths are followed with a stack of arrays
+     * instead of recursion, so a large board can not overflow the Java stack, and the memory used is
+     * linear in the number of cells.
+     * @param lexicon the words to look for, for example a WordTrie or a Dawg
+     * @return the words that were found
+     */
+    public Set<String> solve(Lexicon lexicon){
+        long start = SearchStats.ENABLED ? System.nanoTime() : 0;
+        Set<String> result = new HashSet<String>();
+        StringBuilder path = new StringBuilder(); // the tiles of the current path, so the word can be written out
+        // the stack of the path: one entry for each cell of it
+        int[] cells = new int[tiles.length]; // the cell
+        int[] nodes = new int[tiles.length]; // the lexicon node of the tiles up to and including the cell
+        int[] next = new int[tiles.length]; // which neighbour of the cell to try next
+        int[] length = new int[tiles.length]; // the length of path before the tile of the cell
+        boolean[] extended = new boolean[tiles.length]; // true once a neighbour of the cell has matched
+        long[] checked = new long[(tiles.length + 63) >>> 6]; // the cells of the current path, bit n is cell n
 
-            // fill the odd columns
-            for (int col =1; col <6;col = col +2){      
-                for (int row =0; row < line[col].length(); row++){               
-                    if(line[col].substring(row,row+1).equals("Q")){ // take care of the 'Q' case
-                        board[row][col] = "QU";
+        for (int first =0; first < tiles.length; first++){
+            if (tiles[first] < 0) continue;
+            if (SearchStats.ENABLED) SearchStats.starts.increment();
+            int cell = first;
+            int node = lexicon.child(lexicon.root(), tiles[first]);
+            int depth = -1;
+            while (true){
+                if (node >= 0){ // cell is the next tile of a prefix, so add it to the path
+                    if (SearchStats.ENABLED){
+                        SearchStats.nodes.increment();
+                        if (tiles[cell] == WordTrie.QU) SearchStats.quBranches.increment();
                     }
-                    else {
-                        board[row][col]= line[col].substring(row,row+1);
+                    depth++;
+                    cells[depth] = cell;
+                    nodes[depth] = node;
+                    next[depth] =0;
+                    extended[depth] = false;
+                    length[depth] = path.length();
+                    path.append(board[cell]);
+                    if (lexicon.isWord(node)){
+                        result.add(path.toString());
                     }
+                    checked[cell >>> 6] |= 1L << cell;
                 }
-            }
+                if (depth < 0) break;
 
-            for (int row =0; row <board.length;row++){
-                for (int col =0; col < 7; col++){
-                    if (board[row][col] ==null){
-                        board[row][col] = "";
+                // look for the next neighbour of the cell at the end of the path that carries on a prefix
+                int[] around = grid.neighbours(cells[depth]);
+                int i = next[depth];
+                node = -1;
+                while (node < 0 && i < around.length){
+                    cell = around[i++];
+                    if ((checked[cell >>> 6] & (1L << cell)) == 0 && tiles[cell] >= 0){
+                        node = lexicon.child(nodes[depth], tiles[cell]); // -1 if no word starts with this path
                     }
                 }
+                next[depth] = i;
+                if (node >= 0){
+                    extended[depth] = true;
+                }
+                else { // every neighbour has been tried, so take the cell off again
+                    if (SearchStats.ENABLED && !extended[depth]) SearchStats.backtracks.increment();
+                    checked[cells[depth] >>> 6] &= ~(1L << cells[depth]);
+                    path.setLength(length[depth]);
+                    depth--;
+                }
             }
-            // a printing loop for the sake if visualization of the board
-            /*
-            for (int row =0; row <board.length;row++){
-            for (int col =0; col < 7; col++){
-            if (board[row][col] ==null){
-            board[row][col] = "";
-            }
-            else if (col%2==1 && row == 7){
-            System.out.print( "   [" +board[row][col] + "]" );
-            }
-            else{
-            System.out.print("["+ board[row][col] +"]");
-            }
-            }
-            System.out.println();
-            }
-             */
+        }
+        if (SearchStats.ENABLED) SearchStats.boards.record(System.nanoTime() - start, fingerprint());
+        return result;
+    }
+
+    /**
+     * Checks if word can be made by connecting adjacent cells of the board, without using a cell twice.
+     * The search works on cell ids and moves an index along the word instead of cutting it into substrings,
+     * and keeps its stack in arrays that each thread reuses, so a check does not allocate anything.
+     * @param word The word to check for
+     * @return true if then word is found in the board, else return false
+     */
+    public boolean findWord(String word){
+        return search(word, 0L, SCRATCH.get()) != 0;
+    }
+
+    /**
+     * Same search as findWord, but says which cells the word was found in.
+     * @param word The word to check for
+     * @return a bitmask of the cells of the first path found for the word (bit n is cell n), or 0 if it is not on the board
+     * @throws IllegalStateException if the board has more than 64 cells, which a bitmask can not hold
+     */
+    public long findPath(String word){
+        return findPath(word, 0L);
+    }
+
+    /**
+     * Same search as findPath, but without using some of the cells.
+     * @param word The word to check for
+     * @param excluded a bitmask of the cells the path must not use
+     * @return a bitmask of the cells of the first path found for the word, or 0 if there is no such path
+     * @throws IllegalStateException if the board has more than 64 cells, which a bitmask can not hold
+     */
+    public long findPath(String word, long excluded){
+        if (tiles.length > 64) throw new IllegalStateException("Paths need a board of at most 64 cells");
+        Scratch scratch = SCRATCH.get();
+        int length = search(word, excluded, scratch);
+        long path =0;
+        for (int i =0; i < length; i++){
+            path |= 1L << scratch.cells[i];
+        }
+        return path;
+    }
+
+    /**
+     * Times the search of word, if stats are being kept
+     */
+    private int search(String word, long excluded, Scratch scratch){
+        if (!filter().mightContain(word)) return 0; // ruled out without searching
+        if (!SearchStats.ENABLED) return findStart(word, excluded, scratch);
+        long start = System.nanoTime();
+        int length = findStart(word, excluded, scratch);
+        SearchStats.words.record(System.nanoTime() - start, word);
+        return length;
+    }
+
+    /**
+     * @return the filter of this board, which also counts how many words it has ruled out
+     */
+    public BoardFilter filter(){
+        BoardFilter result = filter;
+        if (result == null){
+            result = new BoardFilter(this);
+            filter = result; // two threads may both build it, which does no harm
+        }
+        return result;
+    }
 
-            // fill dictionary with words to check for 
-            int i =0;
-            while (inFile.hasNext()){
-                dictionary[i] =inFile.nextLine();
-                i++;
+    /**
+     * Tries every cell that is not excluded as the start of word.
+     * @param excluded a bitmask of the cells the path must not use, which can only be given for boards of at most 64 cells
+     * @return the number of cells of the path found, which are left in scratch.cells, or 0 if there is no path
+     */
+    private int findStart(String word, long excluded, Scratch scratch){
+        scratch.fit(Math.min(word.length(), tiles.length), tiles.length);
+        scratch.checked[0] |= excluded;
+        int length =0;
+        for (int cell =0; cell < tiles.length && length == 0; cell++){
+            if (tiles[cell] >= 0 && (excluded & (1L << cell)) == 0){
+                if (SearchStats.ENABLED) SearchStats.starts.increment();
+                int after = match(word, 0, tiles[cell]);
+                if (after >= 0) length = findPath(word, cell, after, scratch);
             }
-            inFile.close();
-            inFile.reset();
         }
-        catch (FileNotFoundException e) {
-            System.out.println ("File not found in directory");
-            System.exit(0);
+        scratch.checked[0] &= ~excluded;
+        // if we have checked every cell, and not found the word, length is still 0
+        return length;
+    }
+
+    /**
+     * Checks a batch of words in parallel on the common fork-join pool. The pool's parallelism can be set
+     * with the java.util.concurrent.ForkJoinPool.common.parallelism system property.
+     * @param words the words to check for
+     * @return for each word, in the same order as words, true if it is on the board
+     */
+    public boolean[] checkAll(Iterable<String> words){
+        return checkAll(words, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Checks a batch of words in parallel. The words are split into ranges that idle workers of pool can
+     * steal from each other, and every worker searches with its own stack, so nothing is shared between
+     * them except the board, which is only read. The board must not be changed while this runs.
+     * @param words the words to check for
+     * @param pool the pool to run the checks on, its parallelism sets how many cores are used
+     * @return for each word, in the same order as words, true if it is on the board
+     */
+    public boolean[] checkAll(Iterable<String> words, ForkJoinPool pool){
+        List<String> list = new ArrayList<String>();
+        for (String word : words){
+            list.add(word);
         }
+        long start = SearchStats.ENABLED ? System.nanoTime() : 0;
+        boolean[] result = new boolean[list.size()];
+        pool.invoke(new CheckTask(list, null, result, 0, list.size()));
+        if (SearchStats.ENABLED) SearchStats.boards.record(System.nanoTime() - start, fingerprint());
+        return result;
+    }
 
+    /**
+     * Checks a batch of words on the common fork-join pool, sharing the search of common prefixes (see below).
+     * @param words the words to check for
+     * @return for each word, in the same order as words, true if it is on the board
+     */
+    public boolean[] checkSorted(Iterable<String> words){
+        return checkSorted(words, ForkJoinPool.commonPool());
     }
 
     /**
-     * Recursive helper function. This searches for the first letter of the word to check for, then calls 
-     * the main recursive function on that words without the first character included. 
-     * @param word The word to check for
-     * @return true if then word is found in the board, else return false
+     * Same as checkAll, but the words are sorted first, and each worker keeps every path that spells the
+     * prefix a word shares with the next one. The next word then only has to extend those paths, so words
+     * like INFLUENCE and INFLUENT share the search of INFLUEN. No trie is built, so this suits word lists
+     * that are only checked once. It is faster than checkAll when many words share a prefix, as in a real
+     * dictionary, and slower for unrelated words. The paths are kept as bitmasks, so boards of more than
+     * 64 cells are checked one word at a time, as in checkAll.
+     * @param words the words to check for
+     * @param pool the pool to run the checks on, its parallelism sets how many cores are used
+     * @return for each word, in the same order as words, true if it is on the board
      */
-    public boolean findWord(String word){
+    public boolean[] checkSorted(Iterable<String> words, ForkJoinPool pool){
+        List<String> list = new ArrayList<String>();
+        for (String word : words){
+            list.add(word);
+        }
+        long start = SearchStats.ENABLED ? System.nanoTime() : 0;
+        boolean[] result = new boolean[list.size()];
+        pool.invoke(new CheckTask(list, sortedOrder(list), result, 0, list.size()));
+        if (SearchStats.ENABLED) SearchStats.boards.record(System.nanoTime() - start, fingerprint());
+        return result;
+    }
 
-        for (int i =0; i<=7; i++){
-            for (int j =0; j<7; j++){
+    /**
+     * Sorts the words by their first few letters, which is all the prefix sharing needs. Each word becomes a
+     * long with its first letters in the high bits (5 bits each, 0 after the end of the word) and its index
+     * in the low bits, so a sort of plain longs does the work, without comparing strings or boxing indexes.
+     * @return the indexes of the words, in sorted order
+     */
+    private static int[] sortedOrder(List<String> words){
+        int indexBits = 32 - Integer.numberOfLeadingZeros(Math.max(words.size() - 1, 1));
+        int letters = (63 - indexBits) / 5; // how many letters fit in the key
+        long[] keys = new long[words.size()];
+        for (int i =0; i < keys.length; i++){
+            String word = words.get(i);
+            long key =0;
+            for (int j =0; j < letters; j++){
+                int letter = (j < word.length()) ? Math.min(Math.max(word.charAt(j) - 'A' + 1, 1), 31) : 0;
+                key = (key << 5) | letter;
+            }
+            keys[i] = (key << indexBits) | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[keys.length];
+        long mask = (1L << indexBits) - 1;
+        for (int i =0; i < order.length; i++){
+            order[i] = (int) (keys[i] & mask);
+        }
+        return order;
+    }
 
-                if (j%2==0 && i==7 ) {
-                    //skip these indexes, because they are not part of the board
-                }
-                else{ 
-                    if (word.startsWith("QU")){ // special casw where the word starts with a QU
-                        if (board[i][j].equals("QU")){
-                            boolean temp = findWord(word.substring(2),i,j, new boolean[8][7]); // if this returns true, we are done, else check next locations
-                            if (temp) return true;
-                        }
+    /**
+     * Checks the words between from and to, splitting the range in half until it is small enough.
+     */
+    private class CheckTask extends RecursiveAction
+    {
+        private final List<String> words;
+        private final int[] order; // if not null, the ith word to check is words.get(order[i]), in sorted order
+        private final boolean[] result;
+        private final int from;
+        private final int to;
+
+        CheckTask(List<String> words, int[] order, boolean[] result, int from, int to){
+            this.words = words;
+            this.order = order;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute(){
+            if (to - from <= TASK_SIZE){
+                if (order == null || tiles.length > 64){
+                    for (int i = from; i < to; i++){
+                        int index = (order == null) ? i : order[i];
+                        result[index] = findWord(words.get(index));
                     }
-                    else if (word.startsWith(board[i][j])){ 
-                        boolean temp = findWord(word.substring(1),i,j, new boolean [8][7]); // if this returns true, we are done, else check next locations
-                        if (temp) return true;
+                }
+                else {
+                    Frontier frontier = new Frontier();
+                    for (int i = from; i < to; i++){
+                        String next = (i + 1 < to) ? words.get(order[i + 1]) : null;
+                        result[order[i]] = frontier.check(words.get(order[i]), next);
                     }
                 }
             }
-
+            else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new CheckTask(words, order, result, from, middle), new CheckTask(words, order, result, middle, to));
+            }
         }
-        // if we have checked every index, and not found the word, we can safely return false
-        return false;
     }
 
     /**
-     * Main recursive function. Works by checking if adjacent indexes contain the letters that the word starts with.
-     * The word continously shrinks until it reaches a length of 0. If it gets to this point it is found.
-     * @param word The word to look for
-     * @param row The current row in the board that we are checking in
-     * @param col the current column in the board that we are checking in
-     * @param checked A boolean matrix which keeps track of which indices have been checked
-     * @return True if the word has been found, else false
+     * Every path of the board that spells the prefix a word shares with the words around it, level by level:
+     * level k holds the paths of the first k tiles, each as the cell it ends at and a bitmask of its cells.
+     * Levels are only built as far as the next word needs them, and the rest of a word is searched for
+     * depth first from the paths of the deepest level, so a word does not pay for every path of a suffix
+     * that no other word shares. Only works on boards of at most 64 cells, and is used by one thread at a time.
      */
-    public boolean findWord(String word, int row, int col, boolean[][] checked){
-        checked[row][col]=true; // mark this index as checked
-        if(word.length()==0) return true; //word was found
-        else if(row < 0 || row >7 || (row >6 && col%2==0) || col<0 || col >6) return false; // we are off the board
-
-        else if (word.length()==1){ // this happens when there is only one char left in the word.
-            // if even, check all the adjacents, 
-            if (col%2==0){
-                if (row -1 >=0 && word.startsWith(board[row-1][col]) && !checked[row-1][col]){ 
-                    if (findWord(word.substring(1),row-1,col,checked)) return true; //checked above
-                    checked[row-1][col] =false; //can reset this particular index to be unchecked
-                }
-                if (row+1 <7 && word.startsWith(board[row+1][col]) && !checked[row+1][col]){ 
-                    if (findWord(word.substring(1),row+1,col,checked)) return true;//check below
-                    checked[row+1][col] =false;
-                }
-                if (col -1 >=0 && word.startsWith(board[row][col-1]) && !checked[row][col-1]){ 
-                    if (findWord(word.substring(1),row,col-1,checked)) return true;//check left above
-                    checked[row][col-1] =false;
-                }
-                if (col +1 <=6 && word.startsWith(board[row][col+1]) && !checked[row][col+1]){ 
-                    if (findWord(word.substring(1),row,col+1,checked)) return true; //check right above
-                    checked[row][col+1] =false;
-                }
-                if (row +1 < 7 && col -1 >=0 && word.startsWith(board[row+1][col-1]) && !checked[row+1][col-1]){ 
-                    if (findWord(word.substring(1),row+1,col-1,checked)) return true; //check left below
-                    checked[row+1][col-1] =false;
-                }
-                if (row + 1 <7 && col +1<=6 && word.startsWith(board[row+1][col+1]) && !checked[row+1][col+1]){ 
-                    if (findWord(word.substring(1),row+1,col+1,checked)) return true;//check right below
-                    checked[row+1][col+1] =false;
-                }
-                //at this point, nothing was adjacent, return false
-                // change the checked back to false
-                checked[row][col] =false;
-                return false;
+    private class Frontier
+    {
+        private int[] prefix = new int[16]; // prefix[k] is the tile of level k+1
+        private int depth; // how many levels are kept
+        private int[] start = new int[17]; // the paths of level k are at start[k-1] to start[k]-1, start[0] is 0
+        private int[] ends = new int[1024]; // the cell each path ends at
+        private long[] paths = new long[1024]; // the cells of each path
+        private int[] word = new int[16]; // the tiles of the word being checked
+        private int[] at = new int[17]; // at[k] is the index in the word just after its first k tiles
+
+        /**
+         * @param word the word to check
+         * @param next the word that will be checked after it, or null
+         * @return true if word is on the board
+         */
+        boolean check(String word, String next){
+            if (!filter().mightContain(word)) return false; // ruled out without searching
+            if (!SearchStats.ENABLED) return extend(word, next);
+            long time = System.nanoTime();
+            boolean found = extend(word, next);
+            SearchStats.words.record(System.nanoTime() - time, word);
+            return found;
+        }
+
+        /**
+         * Keeps the levels of the prefix text shares with the last word, adds the levels of the prefix it
+         * shares with next, then searches for the rest of text from the deepest level.
+         */
+        private boolean extend(String text, String next){
+            int length =0;
+            for (int i =0; i < text.length(); length++){
+                if (length == word.length){
+                    word = Arrays.copyOf(word, 2 * length);
+                    at = Arrays.copyOf(at, 2 * length + 1);
+                }
+                word[length] = WordTrie.tileAt(text, i); // the filter has checked that every tile is valid
+                i += (word[length] == WordTrie.QU) ? 2 : 1;
+                at[length + 1] = i;
             }
-            //if odd check all the adjacents 
-            else{ //(col%2==1){
-                if (row -1 >=0 && word.startsWith(board[row-1][col]) && !checked[row-1][col]){ 
-                    if (findWord(word.substring(1),row-1,col,checked)) return true; //check above
-                    checked[row-1][col] =false;
-                }
-                if (row +1 <=7 && word.startsWith(board[row+1][col]) && !checked[row+1][col]){ 
-                    if (findWord(word.substring(1),row+1,col,checked)) return true; //check below
-                    checked[row+1][col] =false;
-                }
-                if (row -1 >=0 && col -1 >=0 && word.startsWith(board[row-1][col-1]) && !checked[row-1][col-1]){ 
-                    if (findWord(word.substring(1),row-1,col-1,checked)) return true; //check left above
-                    checked[row-1][col-1] =false;
-                }
-                if (row -1 >=0 && col+1<=6 && word.startsWith(board[row-1][col+1]) && !checked[row-1][col+1]){ 
-                    if (findWord(word.substring(1),row-1,col+1,checked)) return true; //check right above
-                    checked[row-1][col+1] =false;
-                }
-                if (col -1 >=0 && word.startsWith(board[row][col-1]) && !checked[row][col-1]){ 
-                    if (findWord(word.substring(1),row,col-1,checked)) return true;//check left below
-                    checked[row][col-1] =false;
+            if (start.length <= length){
+                start = Arrays.copyOf(start, Math.max(length + 1, 2 * start.length));
+                prefix = Arrays.copyOf(prefix, start.length - 1);
+            }
+            int common =0;
+            while (common < depth && common < length && prefix[common] == word[common]){
+                common++;
+            }
+            depth = common;
+
+            // the levels worth building are the ones the next word can use
+            int shared =0;
+            if (next != null){
+                int same =0;
+                while (same < text.length() && same < next.length() && text.charAt(same) == next.charAt(same)){
+                    same++;
                 }
-                if (col +1 <=6 &&word.startsWith(board[row][col+1]) && !checked[row][col+1]){ 
-                    if (findWord(word.substring(1),row,col+1,checked)) return true; //check right below
-                    checked[row][col+1] =false;
+                while (shared < length && at[shared + 1] <= same){
+                    shared++;
                 }
-                //at this point, nothing was adjacent, return false
-                checked[row][col] =false;
-                return false;
             }
+            while (depth < shared){
+                if (depth > 0 && start[depth] == start[depth - 1]) return false; // no path spells the prefix
+                if (!grow(word[depth])) break; // too many paths to keep, so search the rest from the last level
+            }
+            if (depth > 0 && start[depth] == start[depth - 1]) return false;
+            if (depth == length) return true;
+
+            Scratch scratch = SCRATCH.get();
+            if (depth == 0) return findStart(text, 0L, scratch) != 0;
+            scratch.fit(Math.min(text.length(), tiles.length), tiles.length);
+            for (int p = start[depth - 1]; p < start[depth]; p++){
+                // carry on from the end of the path, as if the search had just reached it
+                scratch.checked[0] = paths[p] & ~(1L << ends[p]);
+                boolean found = findPath(text, ends[p], at[depth], scratch) != 0;
+                scratch.checked[0] =0;
+                if (found) return true;
+            }
+            return false;
         }
-        else if (word.startsWith("QU")){ // special case with 'QU'
-            if (col%2==0){
-                if (row -1 >=0 && word.startsWith(board[row-1][col]) && !checked[row-1][col]){ 
-                    if (findWord(word.substring(2),row-1,col,checked)) return true; //check above
-                    checked[row-1][col] =false;
-                }
-                if (row+1 <7 && word.startsWith(board[row+1][col]) && !checked[row+1][col]){ 
-                    if (findWord(word.substring(2),row+1,col,checked)) return true;//check below
-                    checked[row+1][col] =false;
-                }
-                if (col -1 >=0 && word.startsWith(board[row][col-1]) && !checked[row][col-1]){ 
-                    if (findWord(word.substring(2),row,col-1,checked)) return true;//check left above
-                    checked[row][col-1] =false;
-                }
-                if (col +1 <=6 && word.startsWith(board[row][col+1]) && !checked[row][col+1]){ 
-                    if (findWord(word.substring(2),row,col+1,checked)) return true; //check right above
-                    checked[row][col+1] =false;
-                }
-                if ( col -1 >=0 && word.startsWith(board[row+1][col-1]) && !checked[row+1][col-1]){ 
-                    if (findWord(word.substring(2),row+1,col-1,checked)) return true; //check left below
-                    checked[row+1][col-1] =false;
-                }
-                if (col +1<=6 && word.startsWith(board[row+1][col+1]) && !checked[row+1][col+1]){ 
-                    if (findWord(word.substring(2),row+1,col+1,checked)) return true;//check right below
-                    checked[row+1][col+1] =false;
+
+        /**
+         * Adds the level of the paths that go on from the last level to a cell holding tile.
+         * @return false if the level would have more than MAX_PATHS paths, in which case it is not added
+         */
+        private boolean grow(int tile){
+            int from = (depth == 0) ? 0 : start[depth - 1];
+            int to = start[depth];
+            int size = to;
+            if (depth == 0){
+                for (int cell =0; cell < tiles.length && size >= 0; cell++){
+                    if (tiles[cell] == tile){
+                        if (SearchStats.ENABLED) SearchStats.starts.increment();
+                        size = add(size, cell, 1L << cell);
+                    }
                 }
-                //at this point, nothing was adjacent, return false
-                checked[row][col] =false;
-                return false;
             }
-            //if odd check all the adjacents 
-            else{ //(col%2==1){
-                if (row -1 >=0 && word.startsWith(board[row-1][col]) && !checked[row-1][col]){ 
-                    if (findWord(word.substring(2),row-1,col,checked)) return true; //check above
-                    checked[row-1][col] =false;
-                }
-                if (row +1 <=7 && word.startsWith(board[row+1][col]) && !checked[row+1][col]){ 
-                    if (findWord(word.substring(2),row+1,col,checked)) return true; //check below
-                    checked[row+1][col] =false;
-                }
-                if (row -1 >=0 && col -1 >=0 && word.startsWith(board[row-1][col-1]) && !checked[row-1][col-1]){ 
-                    if (findWord(word.substring(2),row-1,col-1,checked)) return true; //check left above
-                    checked[row-1][col-1] =false;
-                }
-                if (row -1 >=0 && col+1<=6 && word.startsWith(board[row-1][col+1]) && !checked[row-1][col+1]){ 
-                    if (findWord(word.substring(2),row-1,col+1,checked)) return true; //check right above
-                    checked[row-1][col+1] =false;
-                }
-                if (col -1 >=0 && word.startsWith(board[row][col-1]) && !checked[row][col-1]){ 
-                    if (findWord(word.substring(2),row,col-1,checked)) return true;//check left below
-                    checked[row][col-1] =false;
-                }
-                if (col +1 <=6 &&word.startsWith(board[row][col+1]) && !checked[row][col+1]){ 
-                    if (findWord(word.substring(2),row,col+1,checked)) return true; //check right below
-                    checked[row][col+1] =false;
+            else {
+                for (int p = from; p < to && size >= 0; p++){
+                    int before = size;
+                    for (int next : grid.neighbours(ends[p])){
+                        if (tiles[next] == tile && (paths[p] & (1L << next)) == 0){
+                            size = add(size, next, paths[p] | (1L << next));
+                            if (size < 0) break;
+                        }
+                    }
+                    if (SearchStats.ENABLED && size == before) SearchStats.backtracks.increment(); // a dead end
                 }
-                //at this point, nothing was adjacent, return false
-                checked[row][col] =false;
-                return false;
             }
+            if (size < 0) return false;
+            prefix[depth] = tile;
+            depth++;
+            start[depth] = size;
+            return true;
+        }
 
+        /**
+         * Adds a path at index size.
+         * @return the new number of paths, or -1 if there would be more than MAX_PATHS
+         */
+        private int add(int size, int cell, long path){
+            if (size == MAX_PATHS) return -1;
+            if (size == ends.length){
+                ends = Arrays.copyOf(ends, 2 * size);
+                paths = Arrays.copyOf(paths, 2 * size);
+            }
+            if (SearchStats.ENABLED){
+                SearchStats.nodes.increment();
+                if (tiles[cell] == WordTrie.QU) SearchStats.quBranches.increment();
+            }
+            ends[size] = cell;
+            paths[size] = path;
+            return size + 1;
         }
-        else{ // the typical case, where we are looking an adjacent letter 
-            // if col is even, check all the adjacents, 
-            if (col%2==0){
-                if (row -1 >=0 && word.startsWith(board[row-1][col]) && !checked[row-1][col]){ 
-                    if (findWord(word.substring(1),row-1,col,checked)) return true; //check above
-                    checked[row-1][col] =false;
-                }
-                if (row+1 <7 && word.startsWith(board[row+1][col]) && !checked[row+1][col]){ 
-                    if (findWord(word.substring(1),row+1,col,checked)) return true;//check below
-                    checked[row+1][col] =false;
-                }
-                if (col -1 >=0 && word.startsWith(board[row][col-1]) && !checked[row][col-1]){ 
-                    if (findWord(word.substring(1),row,col-1,checked)) return true;//check left above
-                    checked[row][col-1] =false;
-                }
-                if (col +1 <=6 && word.startsWith(board[row][col+1]) && !checked[row][col+1]){ 
-                    if (findWord(word.substring(1),row,col+1,checked)) return true; //check right above
-                    checked[row][col+1] =false;
-                }
-                if ( col -1 >=0 && word.startsWith(board[row+1][col-1]) && !checked[row+1][col-1]){ 
-                    if (findWord(word.substring(1),row+1,col-1,checked)) return true; //check left below
-                    checked[row+1][col-1] =false;
-                }
-                if (col +1<=6 && word.startsWith(board[row+1][col+1]) && !checked[row+1][col+1]){ 
-                    if (findWord(word.substring(1),row+1,col+1,checked)) return true;//check right below
-                    checked[row+1][col+1] =false;
+    }
+
+    /**
+     * Main search function. Starting with the tile of first, which matches the start of word, tries to carry on
+     * with the rest of the word from each unchecked neighbour, keeping the path on the stack of scratch.
+     * The cells of the path are marked in scratch.checked while it is followed, and unmarked again before
+     * returning, so the scratch space is clean for the next search.
+     * @param word The word to look for
+     * @param first the id of the cell to start from
+     * @param after the index in word just after the tile of first
+     * @param scratch the stack of this thread, big enough for word
+     * @return the number of cells of the path if the word has been found, which are left in scratch.cells, else 0
+     */
+    private int findPath(String word, int first, int after, Scratch scratch){
+        int[] cells = scratch.cells;
+        int[] next = scratch.next;
+        int[] index = scratch.index;
+        long[] checked = scratch.checked;
+        int cell = first;
+        int depth = -1;
+        boolean leaf = false; // true while the cell at the end of the path has not been carried on from
+        while (true){
+            if (after >= 0){ // the cell holds the next tile of the word, so add it to the path
+                if (SearchStats.ENABLED){
+                    SearchStats.nodes.increment();
+                    if (tiles[cell] == WordTrie.QU) SearchStats.quBranches.increment();
+                }
+                leaf = true;
+                depth++;
+                cells[depth] = cell;
+                index[depth] = after;
+                next[depth] =0;
+                if (after == word.length()){ //word was found, so clear the marks and leave the path in cells
+                    for (int i =0; i < depth; i++){
+                        checked[cells[i] >>> 6] &= ~(1L << cells[i]);
+                    }
+                    return depth + 1;
                 }
-                //at this point, nothing was adjacent, return false
-                checked[row][col] =false;
-                return false;
+                checked[cell >>> 6] |= 1L << cell;
             }
-            //if odd col check all the adjacents 
-            else{ //(col%2==1){
-                if (row -1 >=0 && word.startsWith(board[row-1][col]) && !checked[row-1][col]){ 
-                    if (findWord(word.substring(1),row-1,col,checked)) return true; //check above
-                    checked[row-1][col] =false;
-                }
-                if (row +1 <=7 && word.startsWith(board[row+1][col]) && !checked[row+1][col]){ 
-                    if (findWord(word.substring(1),row+1,col,checked)) return true; //check below
-                    checked[row+1][col] =false;
-                }
-                if (row -1 >=0 && col -1 >=0 && word.startsWith(board[row-1][col-1]) && !checked[row-1][col-1]){ 
-                    if (findWord(word.substring(1),row-1,col-1,checked)) return true; //check left above
-                    checked[row-1][col-1] =false;
-                }
-                if (row -1 >=0 && col+1<=6 && word.startsWith(board[row-1][col+1]) && !checked[row-1][col+1]){ 
-                    if (findWord(word.substring(1),row-1,col+1,checked)) return true; //check right above
-                    checked[row-1][col+1] =false;
-                }
-                if (col -1 >=0 && word.startsWith(board[row][col-1]) && !checked[row][col-1]){ 
-                    if (findWord(word.substring(1),row,col-1,checked)) return true;//check left below
-                    checked[row][col-1] =false;
-                }
-                if (col +1 <=6 &&word.startsWith(board[row][col+1]) && !checked[row][col+1]){ 
-                    if (findWord(word.substring(1),row,col+1,checked)) return true; //check right below
-                    checked[row][col+1] =false;
-                }
-                //at this point, nothing was adjacent, return false
-                checked[row][col] =false;
-                return false;
+            if (depth < 0) return 0;
+
+            // try the next neighbour of the cell at the end of the path
+            int[] around = grid.neighbours(cells[depth]);
+            if (next[depth] == around.length){ // every neighbour failed, so take the cell off again
+                if (SearchStats.ENABLED && leaf) SearchStats.backtracks.increment(); // a dead end, as counted by solve
+                leaf = false;
+                checked[cells[depth] >>> 6] &= ~(1L << cells[depth]);
+                depth--;
+                after = -1;
+                continue;
             }
+            cell = around[next[depth]++];
+            after = ((checked[cell >>> 6] & (1L << cell)) == 0) ? match(word, index[depth], tiles[cell]) : -1;
         }
-
     }
 
-    public static void main(String[] args)  throws FileNotFoundException{
-        if (args.length!=1){
-            System.out.print("Enter the name if the file to read from: ");
-            Scanner scan = new Scanner(System.in);
-            String fileName = scan.next();
+    /**
+     * Checks if the tile with code tile is the next part of word.
+     * @return the index in word just after the tile, or -1 if the tile does not match
+     */
+    private static int match(String word, int index, int tile){
+        if (tile == WordTrie.QU){
+            return word.startsWith("QU", index) ? index + 2 : -1; // the 'QU' tile uses two characters of the word
+        }
+        if (tile < 0 || word.charAt(index) != (char) ('A' + tile)) return -1;
+        return index + 1;
+    }
 
+    /**
+     * Reads the board and words from fileName, and prints out which of the words are on the board.
+     * The words are checked as they are read, so memory use does not depend on the size of the dictionary.
+     * With -Dbookworm.sorted=true each chunk is checked with checkSorted, which is faster for word lists
+     * where many words share a prefix, like a real dictionary.
+     * The results are written by a thread of their own, in the format set with -Dbookworm.output (text,
+     * jsonl or bitset, see ResultSink), and -Dbookworm.foundOnly=true leaves out the words that were not found.
+     * @param fileName name of the file to read board characters and words to find
+     */
+    private static void check(String fileName){
+        if (!ResultSink.isFormat(OUTPUT)){ // found out before any of the input is read
+            System.out.println("Unknown output format " + OUTPUT + ", expected text, jsonl or bitset");
+            return;
+        }
+        try {
+            BoardReader in = new BoardReader(fileName);
             try {
-                Bookworm book = new Bookworm(fileName);
-
-                for (String word : book.dictionary){
-                    if (book.findWord(word)){
-                        System.out.println(word + " was found.");
-                    }
-                    else{
-                        System.out.println(word + " was not found.");
-                    }
+                String[] lines = in.readBoard();
+                if (lines == null){
+                    System.out.println("No board in " + fileName);
+                    return;
                 }
-                //extra test cases
-                /*
-                String[] test = {"LAWN", "BLUEJ", "BBF", "BET", "VAN","QUTENA", "NENTOFQUTENA"};
+                Bookworm book = fromLines(lines);
 
-                for (String word : test){
-                if (book.findWord(word)){
-                System.out.println(word + " was found.");
-                }
-                else{
-                System.out.println(word + " was not found.");
+                // check the words in chunks, so all the cores can be used without holding the whole dictionary
+                ResultSink out = ResultSink.async(ResultSink.open(OUTPUT, System.out, FOUND_ONLY), 2);
+                try {
+                    List<String> chunk = new ArrayList<String>(CHUNK);
+                    String word = in.nextWord();
+                    while (word != null){
+                        chunk.add(word);
+                        word = in.nextWord();
+                        if (chunk.size() == CHUNK || word == null){
+                            boolean[] found = SORTED ? book.checkSorted(chunk) : book.checkAll(chunk);
+                            out.write(chunk, found); // written while the next chunk is checked
+                            chunk.clear();
+                        }
+                    }
+                } finally {
+                    out.close();
                 }
+                if (SearchStats.ENABLED){
+                    System.err.print(SearchStats.toText());
+                    System.err.println(book.filter());
                 }
-                 */
-
-            } catch (FileNotFoundException e) {
-                System.out.println ("File not found in directory");
+            } finally {
+                in.close();
             }
+        } catch (FileNotFoundException e) {
+            System.out.println ("File not found in directory");
+        } catch (IOException e) {
+            System.out.println ("Could not check " + fileName + ": " + e.getMessage());
         }
-        else {           
-            String fileName = args[0];           
-            try {
-                Bookworm book = new Bookworm(fileName);
+    }
 
-                for (String word : book.dictionary){
-                    if (book.findWord(word)){
-                        System.out.println(word + " was found.");
-                    }
-                    else{
-                        System.out.println(word + " was not found.");
+    /**
+     * Loads the words of dictionaryFile once, then prints the words found in each board of boardsFile.
+     * The dictionary is kept apart from the boards, instead of at the top of the same stream, so that it
+     * can be a dictionary compiled by Dawg, which is mapped straight from its file.
+     * @param dictionaryFile name of the file with one word to find per line, or of a dictionary compiled by Dawg
+     * @param boardsFile name of the file with the boards, each one followed by a blank line, or "-" for the standard input
+     */
+    private static void batch(String dictionaryFile, String boardsFile){
+        try {
+            Lexicon dictionary;
+            if (dictionaryFile.endsWith(".dawg")){
+                dictionary = Dawg.open(dictionaryFile); // already compiled, so it only needs mapping
+            }
+            else {
+                WordTrie trie = new WordTrie();
+                BoardReader words = new BoardReader(dictionaryFile);
+                try {
+                    String word;
+                    while ((word = words.nextWord()) != null){
+                        trie.add(word);
                     }
+                } finally {
+                    words.close();
                 }
-                //extra test cases
-                /*
-                String[] test = {"LAWN", "BLUEJ", "BBF", "BET", "VAN","QUTENA", "NENTOFQUTENA"};
-
-                for (String word : test){
-                if (book.findWord(word)){
-                System.out.println(word + " was found.");
-                }
-                else{
-                System.out.println(word + " was not found.");
-                }
-                }
-                 */
+                dictionary = trie;
+            }
 
-            } catch (FileNotFoundException e) {
-                System.out.println ("File not found in directory");
+            BoardReader boards = boardsFile.equals("-")
+                ? new BoardReader(new InputStreamReader(System.in, StandardCharsets.ISO_8859_1))
+                : new BoardReader(boardsFile);
+            try {
+                new BatchSolver(dictionary).run(boards, System.out);
+            } finally {
+                boards.close();
             }
+        } catch (FileNotFoundException e) {
+            System.out.println ("File not found in directory");
+        } catch (IOException e) {
+            System.out.println ("Could not read the input: " + e.getMessage());
+        } catch (IllegalStateException e) { // a worker failed, so the rest of the boards were not solved
+            System.out.println ("Could not solve the boards: " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-            
-            
+    /**
+     * Usage: java Bookworm input.txt                 checks the words after the board in input.txt
+     *        java Bookworm dictionary boards.txt     solves every board of boards.txt against the dictionary
+     *        java Bookworm dictionary -              the same, with the boards read from the standard input
+     * With no arguments, the name of the input file is asked for.
+     */
+    public static void main(String[] args)  throws FileNotFoundException{
+        if (args.length==2){ // a dictionary and a stream of many boards
+            batch(args[0], args[1]);
+        }
+        else if (args.length > 2){
+            System.out.println("Usage: java Bookworm <input file>");
+            System.out.println("       java Bookworm <dictionary> <boards file, or - for the standard input>");
+        }
+        else if (args.length!=1){
+            System.out.print("Enter the name if the file to read from: ");
+            Scanner scan = new Scanner(System.in);
+            String fileName = scan.next();
+            check(fileName);
+        }
+        else {           
+            check(args[0]);
         }
     }
-}
 
+    /**
+     * The stack of the word search. Each thread has its own, which only grows, so once it is big enough
+     * a search does not allocate anything.
+     */
+    private static class Scratch
+    {
+        int[] cells = new int[16]; // cells[depth] is the cell at that depth of the path
+        int[] next = new int[16]; // next[depth] is which neighbour of the cell to try next
+        int[] index = new int[16]; // index[depth] is the position in the word just after the tile of the cell
+        long[] checked = new long[1]; // the cells of the current path, bit n is cell n. Every bit is 0 between searches
+
+        /**
+         * Makes sure there is room for a path of depth cells on a board with size cell ids
+         */
+        void fit(int depth, int size){
+            if (cells.length < depth){
+                int length = Math.max(depth, 2 * cells.length);
+                cells = new int[length];
+                next = new int[length];
+                index = new int[length];
+            }
+            if (checked.length < ((size + 63) >>> 6)){
+                checked = new long[(size + 63) >>> 6];
+            }
+        }
+    }
+}
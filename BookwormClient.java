@@ -0,0 +1,133 @@
+/**
+ * Client for a BookwormServer. Sends one request at a time over a single connection, and turns the
+ * answers back into Java values.
+ *
+ * @author Paul Macfarlane
+ * @version 1.0
+ */
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+public class BookwormClient implements Closeable
+{
+    private final Socket socket;
+    private final BufferedReader in;
+    private final Writer out;
+
+    /**
+     * Connects to a server on this machine
+     * @param port the port the server listens on
+     * @throws IOException if the connection fails
+     */
+    public BookwormClient(int port) throws IOException {
+        socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+        out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * @return true if the server answered
+     */
+    public boolean ping() throws IOException {
+        return request("PING").equals("OK PONG");
+    }
+
+    /**
+     * @param board the lines of the board
+     * @return the words of the server's dictionary that are on the board, in alphabetical order
+     * @throws BusyException if the server is overloaded
+     */
+    public Set<String> solve(String[] board) throws IOException {
+        String[] answer = ok(request("SOLVE " + String.join(",", board)));
+        return new LinkedHashSet<String>(Arrays.asList(answer).subList(2, answer.length));
+    }
+
+    /**
+     * @param board the lines of the board
+     * @param words the words to check, sent in one request
+     * @return for each word, in the same order, true if it is on the board
+     * @throws BusyException if the server is overloaded
+     * @throws IllegalArgumentException if a word is empty or has a space in it, which the request can not hold
+     * @throws IOException if the answer does not have a result for every word
+     */
+    public boolean[] check(String[] board, List<String> words) throws IOException {
+        StringBuilder request = new StringBuilder("CHECK ").append(String.join(",", board));
+        for (String word : words){
+            if (word.isEmpty() || hasSpace(word)){
+                throw new IllegalArgumentException("Can not send the word \"" + word + "\"");
+            }
+            request.append(' ').append(word);
+        }
+        String[] answer = ok(request(request.toString()));
+        if (answer.length != words.size() + 1){
+            throw new IOException("Server answered " + (answer.length - 1) + " results for " + words.size() + " words");
+        }
+        boolean[] found = new boolean[words.size()];
+        for (int i =0; i < found.length; i++){
+            found[i] = answer[i + 1].equals("1");
+        }
+        return found;
+    }
+
+    /**
+     * Sends a request line and waits for the answer line
+     */
+    public String request(String line) throws IOException {
+        out.write(line);
+        out.write('\n');
+        out.flush();
+        String answer = in.readLine();
+        if (answer == null) throw new IOException("Server closed the connection");
+        return answer;
+    }
+
+    /**
+     * @return true if word has a character the server would take as the end of a word or of the request
+     */
+    private static boolean hasSpace(String word){
+        for (int i =0; i < word.length(); i++){
+            if (Character.isWhitespace(word.charAt(i))) return true;
+        }
+        return false;
+    }
+
+    private static String[] ok(String answer) throws IOException {
+        if (answer.equals("BUSY")) throw new BusyException();
+        if (!answer.startsWith("OK")) throw new IOException("Server answered: " + answer);
+        return answer.split(" ");
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            out.write("QUIT\n");
+            out.flush();
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Thrown when the server turns a request away because it is overloaded
+     */
+    public static class BusyException extends IOException
+    {
+        private static final long serialVersionUID = 1L;
+
+        public BusyException(){
+            super("Server is busy");
+        }
+    }
+}
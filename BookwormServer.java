@@ -0,0 +1,343 @@
+/**
+ * A server that keeps the dictionary loaded and the solver warm, and answers board queries over a local
+ * TCP socket. Each connection is served by its own thread. The protocol is one request per line, and one
+ * answer line per request, in the same order:
+ *
+ *   SOLVE board                  OK count WORD WORD ...   (the words of the dictionary on the board)
+ *   CHECK board word word ...    OK 1 0 ...               (1 for each word on the board, 0 for each one not)
+ *   PING                         OK PONG
+ *   QUIT                         (closes the connection)
+ *
+ * A board is its lines separated by commas, for example FOTNAEU,QTVLETVB,NEAWNFB,AEANIBET,IUSNELU,NALFJUAY,ASTHEUS
+ * for the standard board (other shapes are accepted with -Dbookworm.anyShape=true, see Bookworm.fromLines).
+ * A bad request is answered with ERR and a message. When too many requests are being worked on, new ones
+ * are answered with BUSY straight away instead of being queued, and the client should try again later.
+ * In the same way, a connection made while too many are open is sent BUSY and closed.
+ * Answers to requests sent together are written out together.
+ *
+ * Usage: java BookwormServer dictionary [port]
+ *
+ * @author Paul Macfarlane
+ * @version 1.0
+ */
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public class BookwormServer implements Closeable
+{
+    /** The port used when none is given */
+    public static final int DEFAULT_PORT = 7070;
+    /** How many connections are served at the same time when no limit is given */
+    public static final int DEFAULT_MAX_CONNECTIONS = 64;
+    private static final int MAX_LINE = 1 << 20; // longest request accepted, so one client can not use up the memory
+    private static final int MAX_CELLS = 1 << 12; // most cells of a board in a request, so one request can not take too long
+    private static final String TOO_LONG = new String("ERR request too long"); // what readLine gives for a line over MAX_LINE
+    private static final long SHUTDOWN_MILLIS = 5000; // how long close waits for the requests being worked on
+
+    private final Lexicon dictionary;
+    private final ResultCache cache = new ResultCache(1 << 16, 1 << 10);
+    private final int maxInFlight;
+    private final Semaphore inFlight; // a permit for every request that can be worked on at the same time
+    private final ServerSocket server;
+    private final Semaphore open; // a permit for every connection that can be served at the same time
+    private final ExecutorService connections; // one thread per connection
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    /**
+     * Starts a server on the loopback address, which serves up to DEFAULT_MAX_CONNECTIONS connections.
+     * @param dictionary the words to look for
+     * @param port the port to listen on, or 0 to pick a free one
+     * @param maxInFlight how many requests can be worked on at the same time before BUSY is answered
+     * @throws IOException if the port can not be opened
+     */
+    public BookwormServer(Lexicon dictionary, int port, int maxInFlight) throws IOException {
+        this(dictionary, port, maxInFlight, DEFAULT_MAX_CONNECTIONS);
+    }
+
+    /**
+     * Starts a server on the loopback address.
+     * @param dictionary the words to look for
+     * @param port the port to listen on, or 0 to pick a free one
+     * @param maxInFlight how many requests can be worked on at the same time before BUSY is answered
+     * @param maxConnections how many connections can be open at the same time before new ones are sent BUSY
+     * @throws IOException if the port can not be opened
+     */
+    public BookwormServer(Lexicon dictionary, int port, int maxInFlight, int maxConnections) throws IOException {
+        if (maxInFlight < 1) throw new IllegalArgumentException("maxInFlight must be at least 1");
+        if (maxConnections < 1) throw new IllegalArgumentException("maxConnections must be at least 1");
+        this.dictionary = dictionary;
+        this.maxInFlight = maxInFlight;
+        inFlight = new Semaphore(maxInFlight);
+        open = new Semaphore(maxConnections);
+        server = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+        connections = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "bookworm-connection");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Thread acceptor = new Thread(this::accept, "bookworm-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int port(){
+        return server.getLocalPort();
+    }
+
+    /**
+     * @return the cache of results shared by all connections
+     */
+    public ResultCache cache(){
+        return cache;
+    }
+
+    /**
+     * Stops the server. No new connections are accepted, the requests being worked on are given a few
+     * seconds to finish and be answered, then every connection is closed.
+     */
+    @Override
+    public void close(){
+        if (closed) return;
+        closed = true;
+        try {
+            server.close();
+        } catch (IOException e) {
+            // the server socket is being thrown away anyway
+        }
+        try {
+            // once every permit is held, no request is being worked on
+            inFlight.tryAcquire(maxInFlight, SHUTDOWN_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Socket client : clients){
+            closeQuietly(client);
+        }
+        connections.shutdownNow();
+    }
+
+    private void accept(){
+        while (!closed){
+            try {
+                final Socket client = server.accept();
+                if (!open.tryAcquire()){
+                    turnAway(client); // too many connections, so this one gets no thread
+                    continue;
+                }
+                clients.add(client);
+                connections.execute(() -> serve(client));
+            } catch (IOException e) {
+                if (!closed) System.out.println("Could not accept a connection: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Answers the requests of one connection until it is closed.
+     */
+    private void serve(Socket client){
+        try {
+            BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.ISO_8859_1));
+            Writer out = new BufferedWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.ISO_8859_1));
+            String request;
+            while (!closed && (request = readLine(in)) != null){
+                if (request.trim().equals("QUIT")) break;
+                String answer;
+                if (request == TOO_LONG){
+                    answer = TOO_LONG;
+                }
+                else if (!inFlight.tryAcquire()){
+                    answer = "BUSY"; // overloaded, so turn the request away instead of queueing it
+                }
+                else {
+                    try {
+                        answer = handle(request);
+                    } finally {
+                        inFlight.release();
+                    }
+                }
+                out.write(answer);
+                out.write('\n');
+                if (!in.ready()) out.flush(); // only flush once every request sent so far has been answered
+            }
+            out.flush();
+        } catch (SocketException e) {
+            // the client went away, or the server is closing
+        } catch (IOException e) {
+            if (!closed) System.out.println("Connection failed: " + e.getMessage());
+        } finally {
+            clients.remove(client);
+            closeQuietly(client);
+            open.release();
+        }
+    }
+
+    /**
+     * Reads a line without ever holding more than MAX_LINE characters of it, so a client can not use up
+     * the memory by never ending a line. The rest of a longer line is read and thrown away.
+     * @return the line without its end, TOO_LONG if it was longer than MAX_LINE, or null at the end of the input
+     */
+    private static String readLine(BufferedReader in) throws IOException {
+        int c = in.read();
+        if (c < 0) return null;
+        StringBuilder line = new StringBuilder();
+        boolean tooLong = false;
+        while (c >= 0 && c != '\n'){
+            if (line.length() < MAX_LINE) line.append((char) c);
+            else tooLong = true;
+            c = in.read();
+        }
+        if (tooLong) return TOO_LONG;
+        int end = line.length();
+        if (end > 0 && line.charAt(end-1) == '\r') end--; // a line ended by "\r\n"
+        return line.substring(0, end);
+    }
+
+    /**
+     * Answers a connection that can not be served with BUSY, and closes it.
+     */
+    private static void turnAway(Socket client){
+        try {
+            Writer out = new OutputStreamWriter(client.getOutputStream(), StandardCharsets.ISO_8859_1);
+            out.write("BUSY\n");
+            out.flush();
+        } catch (IOException e) {
+            // the client will see the connection closed instead
+        } finally {
+            closeQuietly(client);
+        }
+    }
+
+    /**
+     * Works out the answer to one request.
+     * @param request a line of the protocol
+     * @return the answer line
+     */
+    private String handle(String request){
+        String[] parts = request.trim().split("\\s+");
+        try {
+            if (parts[0].equals("PING")){
+                return "OK PONG";
+            }
+            if (parts[0].equals("SOLVE") && parts.length == 2){
+                Set<String> found = new TreeSet<String>(cache.solve(board(parts[1]), dictionary));
+                StringBuilder answer = new StringBuilder("OK ").append(found.size());
+                for (String word : found){
+                    answer.append(' ').append(word);
+                }
+                return answer.toString();
+            }
+            if (parts[0].equals("CHECK") && parts.length >= 2){
+                Bookworm book = board(parts[1]);
+                StringBuilder answer = new StringBuilder("OK");
+                for (int i =2; i < parts.length; i++){
+                    answer.append(cache.findWord(book, parts[i]) ? " 1" : " 0");
+                }
+                return answer.toString();
+            }
+            return "ERR unknown request";
+        } catch (IllegalArgumentException e) {
+            return "ERR " + e.getMessage();
+        } catch (RuntimeException e) { // a bug should not cost the connection. An Error still ends it
+            System.out.println("Request failed: " + e);
+            return "ERR internal error";
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if text is not a board, or has more than MAX_CELLS cells
+     */
+    private static Bookworm board(String text){
+        int cells =0;
+        for (int i =0; i < text.length(); i++){
+            if (text.charAt(i) != ',' && text.charAt(i) != '#') cells++;
+        }
+        if (cells > MAX_CELLS){
+            throw new IllegalArgumentException("A board can have at most " + MAX_CELLS + " cells");
+        }
+        String[] lines = text.split(",", -1);
+        return Bookworm.fromLines(lines);
+    }
+
+    private static void closeQuietly(Socket socket){
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // nothing useful can be done if closing fails
+        }
+    }
+
+    /**
+     * Loads the dictionary, warms up the solver, and serves until the process is stopped.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1 || args.length > 2){
+            System.out.println("Usage: java BookwormServer <dictionary> [port]");
+            return;
+        }
+        Lexicon dictionary;
+        try {
+            dictionary = load(args[0]);
+        } catch (FileNotFoundException e) {
+            System.out.println ("File not found in directory");
+            return;
+        }
+        warmUp(dictionary);
+        int port = (args.length == 2) ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+        final BookwormServer server = new BookwormServer(dictionary, port, 4 * Runtime.getRuntime().availableProcessors());
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        System.out.println("Listening on port " + server.port());
+        Thread.currentThread().join(); // serve until the process is stopped
+    }
+
+    /**
+     * Loads a word list, or a dictionary compiled by Dawg if the name ends in .dawg
+     */
+    static Lexicon load(String fileName) throws IOException {
+        if (fileName.endsWith(".dawg")) return Dawg.open(fileName);
+        WordTrie trie = new WordTrie();
+        BoardReader in = new BoardReader(fileName);
+        try {
+            String word;
+            while ((word = in.nextWord()) != null){
+                trie.add(word);
+            }
+        } finally {
+            in.close();
+        }
+        return trie;
+    }
+
+    /**
+     * Runs the searches enough times for the JIT to compile them before the first real request.
+     */
+    private static void warmUp(Lexicon dictionary){
+        Bookworm book = new Bookworm(new String[] {"ETAOINS", "RHLDCUMW", "FGYPBVK", "TAOINSRH", "LDCUMWF", "YPBVKETA", "OINSRHL"});
+        for (int i =0; i < 200; i++){
+            book.solve(dictionary);
+            book.findWord("STONE");
+        }
+    }
+}
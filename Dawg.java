@@ -0,0 +1,212 @@
+/**
+ * A dictionary compiled into a minimal directed acyclic word graph (DAWG): a trie where the nodes that end
+ * in the same set of suffixes are merged into one. The graph is saved as a binary file, which is
+ * memory-mapped when it is loaded, so startup does not depend on the number of words, nothing is created
+ * on the heap for each word, and processes that map the same file share its pages.
+ *
+ * The file is a list of big-endian ints: a magic number, the number of ints in the graph, the offset of the
+ * root node, then the nodes themselves. A node at offset o is the int (edges << 1 | isWord), followed by one
+ * int per edge holding (offset of the child << 5 | tile), sorted by tile.
+ *
+ * Usage: java Dawg words.txt words.dawg
+ *
+ * @author Paul Macfarlane
+ * @version 1.0
+ */
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+public class Dawg implements Lexicon
+{
+    private static final int MAGIC = 0x44415747; // "DAWG"
+    private static final int HEADER = 3; // the ints before the nodes: magic, length and root
+    private static final int TILE_BITS = 5;
+    private static final int TILE_MASK = (1 << TILE_BITS) - 1;
+
+    private final IntBuffer graph; // the nodes, starting at offset 0
+    private final int root;
+
+    private Dawg(IntBuffer graph, int root){
+        this.graph = graph;
+        this.root = root;
+    }
+
+    /**
+     * Memory-maps a compiled dictionary
+     * @param fileName name of a file written by compile
+     * @return the dictionary, read straight from the mapped file
+     * @throws FileNotFoundException if fileName does not match a file in the directory of java file
+     * @throws IOException if the file can not be mapped
+     * @throws IllegalArgumentException if the file is not a compiled dictionary
+     */
+    public static Dawg open(String fileName) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(fileName, "r");
+        try {
+            MappedByteBuffer mapped = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            IntBuffer ints = mapped.asIntBuffer();
+            if (ints.limit() < HEADER || ints.get(0) != MAGIC){
+                throw new IllegalArgumentException(fileName + " is not a compiled dictionary");
+            }
+            int length = ints.get(1);
+            int root = ints.get(2);
+            if (length != ints.limit() - HEADER || root < 0 || root >= length){
+                throw new IllegalArgumentException(fileName + " is truncated");
+            }
+            ints.position(HEADER);
+            return new Dawg(ints.slice(), root); // the mapping stays valid after the file is closed
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Compiles the words of a trie into a file that can be loaded with open
+     * @param trie the words to compile
+     * @param fileName name of the file to write
+     * @throws IOException if the file can not be written
+     */
+    public static void compile(WordTrie trie, String fileName) throws IOException {
+        int[] nodes = minimize(trie);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(nodes.length - 1);
+            out.writeInt(nodes[nodes.length - 1]);
+            for (int i =0; i < nodes.length - 1; i++){
+                out.writeInt(nodes[i]);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Compiles the words of a trie into a DAWG held in memory
+     * @param trie the words to compile
+     * @return the compiled dictionary
+     */
+    public static Dawg of(WordTrie trie){
+        int[] nodes = minimize(trie);
+        return new Dawg(IntBuffer.wrap(nodes, 0, nodes.length - 1).slice(), nodes[nodes.length - 1]);
+    }
+
+    /**
+     * Merges the equal nodes of the trie. The trie nodes are visited from the last to the first, so every
+     * child has been given its offset before its parent is looked at, and two nodes are equal if they
+     * are both words (or both not) and have the same edges to the same merged children.
+     * @return the encoded graph, with the offset of the root as an extra int on the end
+     */
+    private static int[] minimize(WordTrie trie){
+        int[] offset = new int[trie.size()]; // the offset each trie node was merged into
+        Map<String, Integer> merged = new HashMap<String, Integer>(); // the offset of each distinct node
+        int[] graph = new int[1024];
+        int length =0;
+        int[] edges = new int[WordTrie.TILES];
+
+        for (int node = trie.size() - 1; node >= 0; node--){
+            int count =0;
+            for (int tile =0; tile < WordTrie.TILES; tile++){
+                int child = trie.child(node, tile);
+                if (child >= 0){
+                    edges[count++] = (offset[child] << TILE_BITS) | tile;
+                }
+            }
+            int header = (count << 1) | (trie.isWord(node) ? 1 : 0);
+
+            StringBuilder key = new StringBuilder(2 * count + 2);
+            key.append((char) (header >>> 16)).append((char) header);
+            for (int i =0; i < count; i++){
+                key.append((char) (edges[i] >>> 16)).append((char) edges[i]);
+            }
+            Integer existing = merged.get(key.toString());
+            if (existing != null){
+                offset[node] = existing;
+                continue;
+            }
+
+            if (length + count + 2 > graph.length){
+                int[] bigger = new int[Math.max(graph.length * 2, length + count + 2)];
+                System.arraycopy(graph, 0, bigger, 0, length);
+                graph = bigger;
+            }
+            if (length >= 1 << (32 - TILE_BITS)) throw new IllegalArgumentException("Dictionary is too large to compile");
+            offset[node] = length;
+            merged.put(key.toString(), length);
+            graph[length++] = header;
+            for (int i =0; i < count; i++){
+                graph[length++] = edges[i];
+            }
+        }
+        graph[length++] = offset[trie.root()];
+
+        int[] result = new int[length];
+        System.arraycopy(graph, 0, result, 0, length);
+        return result;
+    }
+
+    @Override
+    public int root(){
+        return root;
+    }
+
+    @Override
+    public int child(int node, int tile){
+        int count = graph.get(node) >>> 1;
+        for (int i = node + 1; i <= node + count; i++){
+            int edge = graph.get(i);
+            int edgeTile = edge & TILE_MASK;
+            if (edgeTile == tile) return edge >>> TILE_BITS;
+            if (edgeTile > tile) return -1; // the edges are sorted, so the tile can not come later
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean isWord(int node){
+        return (graph.get(node) & 1) != 0;
+    }
+
+    /**
+     * @return the number of ints the graph takes up
+     */
+    public int size(){
+        return graph.limit();
+    }
+
+    /**
+     * Compiles a word list, one word per line, into a DAWG file.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2){
+            System.out.println("Usage: java Dawg <words file> <dawg file>");
+            return;
+        }
+        WordTrie trie = new WordTrie();
+        int words =0;
+        try {
+            BoardReader in = new BoardReader(args[0]);
+            try {
+                String word;
+                while ((word = in.nextWord()) != null){
+                    if (trie.add(word)) words++;
+                }
+            } finally {
+                in.close();
+            }
+        } catch (FileNotFoundException e) {
+            System.out.println ("File not found in directory");
+            return;
+        }
+        compile(trie, args[1]);
+        System.out.println("Compiled " + words + " words into " + args[1]);
+    }
+}
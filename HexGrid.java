@@ -0,0 +1,247 @@
+/**
+ * Geometry of a bookworm board. Cells are laid out in columns of hexagons, where the even columns are
+ * shifted down by half a cell. In the standard layout the even columns have one less cell than the odd
+ * columns, but any number of rows and columns can be used, and any of the cells can be left out.
+ * Only the cells that are part of the board are stored. They are numbered column by column, from the
+ * top down, so the cells of a column have consecutive ids. The neighbours of each cell are worked out
+ * once, when the grid is created, so the searches do not need to repeat the even/odd column logic.
+ * A grid takes memory linear in its number of cells and columns, however far apart they are.
+ *
+ * @author Paul Macfarlane
+ * @version 1.0
+ */
+public class HexGrid
+{
+    /** The standard board of the game: 7 columns, with 8 cells in the odd columns and 7 in the even ones */
+    public static final HexGrid BOOKWORM = new HexGrid(8, 7);
+
+    private final int rows;
+    private final int cols;
+    private final int[] first; // first[col] is the id of the top cell of col, and first[cols] the number of cells
+    private final int[] rowOf; // rowOf[cell] is the row of each cell, going down each column
+    private final int[] colOf; // colOf[cell] is the column of each cell
+    private final int[][] neighbours; // neighbours[cell] holds the ids of every cell adjacent to cell
+
+    /**
+     * Creates a grid where the bottom cell of every even column is not part of the board.
+     * @param rows the number of cells in an odd column
+     * @param cols the number of columns
+     */
+    public HexGrid(int rows, int cols){
+        this(rows, standard(rows, cols));
+    }
+
+    /**
+     * Creates a grid with only some of the cells.
+     * @param cells cells[row][col] is true if (row, col) is part of the board. Every row must have the same length
+     * @throws IllegalArgumentException if the rows are not all the same length
+     */
+    public HexGrid(boolean[][] cells){
+        this(cells.length, columnsOf(cells));
+    }
+
+    /**
+     * @param rows the number of rows
+     * @param cellRows cellRows[col] holds the rows of the cells of each column, in increasing order
+     */
+    private HexGrid(int rows, int[][] cellRows){
+        this.rows = rows;
+        cols = cellRows.length;
+        first = new int[cols + 1];
+        for (int col =0; col < cols; col++){
+            first[col+1] = first[col] + cellRows[col].length;
+        }
+        rowOf = new int[first[cols]];
+        colOf = new int[first[cols]];
+        for (int col =0; col < cols; col++){
+            System.arraycopy(cellRows[col], 0, rowOf, first[col], cellRows[col].length);
+            for (int cell = first[col]; cell < first[col+1]; cell++){
+                colOf[cell] = col;
+            }
+        }
+        neighbours = new int[rowOf.length][];
+        for (int cell =0; cell < rowOf.length; cell++){
+            neighbours[cell] = findNeighbours(rowOf[cell], colOf[cell]);
+        }
+    }
+
+    /**
+     * Creates a grid with a column for each line, where each column has a cell for every character of its
+     * line, from the top down. A '#' leaves that cell out of the board.
+     * @param lines the lines of a board, one for each column from left to right
+     * @return the grid the lines fill exactly
+     */
+    public static HexGrid forColumns(String[] lines){
+        int rows =0;
+        int[][] cellRows = new int[lines.length][];
+        for (int col =0; col < lines.length; col++){
+            String line = lines[col];
+            rows = Math.max(rows, line.length());
+            int count =0;
+            for (int row =0; row < line.length(); row++){
+                if (line.charAt(row) != '#') count++;
+            }
+            cellRows[col] = new int[count];
+            count =0;
+            for (int row =0; row < line.length(); row++){
+                if (line.charAt(row) != '#') cellRows[col][count++] = row;
+            }
+        }
+        return new HexGrid(rows, cellRows);
+    }
+
+    /**
+     * @return the rows of the cells of each column of the standard layout, where the bottom cell of every
+     *         even column is left out
+     */
+    private static int[][] standard(int rows, int cols){
+        int[][] cellRows = new int[cols][];
+        for (int col =0; col < cols; col++){
+            cellRows[col] = new int[(col%2==0) ? rows - 1 : rows];
+            for (int row =0; row < cellRows[col].length; row++){
+                cellRows[col][row] = row;
+            }
+        }
+        return cellRows;
+    }
+
+    /**
+     * @return the rows of the cells of each column of cells
+     */
+    private static int[][] columnsOf(boolean[][] cells){
+        int cols = (cells.length == 0) ? 0 : cells[0].length;
+        int[][] cellRows = new int[cols][];
+        int[] count = new int[cols];
+        for (int row =0; row < cells.length; row++){
+            if (cells[row].length != cols) throw new IllegalArgumentException("Row " + row + " does not have " + cols + " columns");
+            for (int col =0; col < cols; col++){
+                if (cells[row][col]) count[col]++;
+            }
+        }
+        for (int col =0; col < cols; col++){
+            cellRows[col] = new int[count[col]];
+            count[col] =0;
+        }
+        for (int row =0; row < cells.length; row++){
+            for (int col =0; col < cols; col++){
+                if (cells[row][col]) cellRows[col][count[col]++] = row;
+            }
+        }
+        return cellRows;
+    }
+
+    /**
+     * Works out the cells adjacent to (row, col). An even column touches rows row and row+1 of the
+     * columns beside it, an odd column touches rows row-1 and row.
+     */
+    private int[] findNeighbours(int row, int col){
+        int side = (col%2==0) ? 1 : -1; // the row offset of the second adjacent cell in the side columns
+        int[][] candidates = {
+                {row-1, col}, {row+1, col}, // above and below
+                {row, col-1}, {row, col+1}, // left and right
+                {row+side, col-1}, {row+side, col+1}};
+        int[] found = new int[candidates.length];
+        int count =0;
+        for (int[] candidate : candidates){
+            int cell = cell(candidate[0], candidate[1]);
+            if (cell >= 0){
+                found[count++] = cell;
+            }
+        }
+        int[] result = new int[count];
+        System.arraycopy(found, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * @return true if (row, col) is a cell of the board
+     */
+    public boolean isCell(int row, int col){
+        return cell(row, col) >= 0;
+    }
+
+    /**
+     * @return the id of the cell at (row, col), or -1 if (row, col) is not part of the board
+     */
+    public int cell(int row, int col){
+        if (row < 0 || col < 0 || row >= rows || col >= cols) return -1; // off the grid
+        // the rows of a column go up with the ids, so the cell can be looked up by halves
+        int low = first[col];
+        int high = first[col+1] - 1;
+        while (low <= high){
+            int middle = (low + high) >>> 1;
+            if (rowOf[middle] < row) low = middle + 1;
+            else if (rowOf[middle] > row) high = middle - 1;
+            else return middle;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the row of the cell with the given id
+     */
+    public int row(int cell){
+        return rowOf[cell];
+    }
+
+    /**
+     * @return the column of the cell with the given id
+     */
+    public int col(int cell){
+        return colOf[cell];
+    }
+
+    /**
+     * @return the id of the top cell of col. The cells of col are the ids from this up to columnEnd(col)
+     */
+    public int columnStart(int col){
+        return first[col];
+    }
+
+    /**
+     * @return one more than the id of the bottom cell of col
+     */
+    public int columnEnd(int col){
+        return first[col+1];
+    }
+
+    /**
+     * @return the ids of the cells adjacent to cell. The array is shared, so it must not be changed
+     */
+    public int[] neighbours(int cell){
+        return neighbours[cell];
+    }
+
+    /**
+     * @return the number of cells, which are numbered from 0
+     */
+    public int size(){
+        return rowOf.length;
+    }
+
+    /**
+     * @return a text that is the same for two grids if, and only if, they have the same cells. Each column
+     *         is a '.' for each row that is a cell and a '#' for each one that is not, down to its last cell
+     */
+    public String shape(){
+        StringBuilder text = new StringBuilder();
+        for (int col =0; col < cols; col++){
+            if (col > 0) text.append(',');
+            int row =0;
+            for (int cell = first[col]; cell < first[col+1]; cell++){
+                for (; row < rowOf[cell]; row++) text.append('#');
+                text.append('.');
+                row++;
+            }
+        }
+        return text.toString();
+    }
+
+    public int rows(){
+        return rows;
+    }
+
+    public int cols(){
+        return cols;
+    }
+}
@@ -0,0 +1,216 @@
+/**
+ * Keeps the set of dictionary words on a board up to date while moves are played. Each found word is kept
+ * with the cells of one path that spells it, and each cell knows which found words go through it, so
+ * after a move only the words that used a changed cell are checked again, and the search for new words
+ * only follows paths that can still reach a changed cell.
+ * This class is not thread safe, and the board should only be changed through applyMove.
+ *
+ * @author Paul Macfarlane
+ * @version 1.0
+ */
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+
+public class IncrementalSolver
+{
+    private static final int FAR = Integer.MAX_VALUE; // distance of a cell that can not reach a changed cell
+
+    private final Bookworm book;
+    private final WordTrie trie;
+    private final int[] height; // height[node] is the most tiles any word below node still needs
+    // words are known by the number of the trie node they end at
+    private final long[] paths; // paths[node] is a bitmask of the cells of the path of a found word, or 0
+    private final BitSet found = new BitSet(); // the nodes of the found words
+    private final BitSet[] byCell; // byCell[cell] holds the nodes of the found words whose path uses cell
+
+    /**
+     * Solves the board, and remembers the path of every word found.
+     * @param book the board, which applyMove will change
+     * @param trie the words to look for
+     */
+    public IncrementalSolver(Bookworm book, WordTrie trie){
+        if (book.grid().size() > 64) throw new IllegalArgumentException("Boards of more than 64 cells are not supported");
+        this.book = book;
+        this.trie = trie;
+        height = new int[trie.size()];
+        // children always come after their parent, so going backwards sees each child before its parent
+        for (int node = trie.size() - 1; node >= 0; node--){
+            for (int tile =0; tile < WordTrie.TILES; tile++){
+                int child = trie.child(node, tile);
+                if (child >= 0 && height[child] + 1 > height[node]){
+                    height[node] = height[child] + 1;
+                }
+            }
+        }
+        paths = new long[trie.size()];
+        byCell = new BitSet[book.grid().size()];
+        for (int cell =0; cell < byCell.length; cell++){
+            byCell[cell] = new BitSet();
+        }
+        search(-1L);
+    }
+
+    /**
+     * @return the words that are on the board right now
+     */
+    public Set<String> found(){
+        Set<String> words = new HashSet<String>();
+        for (int node = found.nextSetBit(0); node >= 0; node = found.nextSetBit(node + 1)){
+            words.add(trie.word(node));
+        }
+        return words;
+    }
+
+    /**
+     * @param word a found word
+     * @return a bitmask of the cells of a path that spells word (bit n is cell n), or 0 if it is not on the board
+     */
+    public long path(String word){
+        int node = trie.root();
+        int i =0;
+        while (node >= 0 && i < word.length()){
+            int tile = WordTrie.tileAt(word, i);
+            if (tile < 0) return 0;
+            node = trie.child(node, tile);
+            i += (tile == WordTrie.QU) ? 2 : 1;
+        }
+        return (node < 0) ? 0 : paths[node];
+    }
+
+    /**
+     * Plays a move given as a list of cells.
+     * @param path the ids of the cells of the word that was played
+     * @throws IllegalArgumentException if path uses a cell twice or a cell without a tile
+     * @see #applyMove(long, String)
+     */
+    public long applyMove(int[] path, String newTiles){
+        long removed =0;
+        for (int cell : path){
+            if (cell < 0 || cell >= book.grid().size() || (removed & (1L << cell)) != 0){
+                throw new IllegalArgumentException("Cell " + cell + " can not be part of a move");
+            }
+            removed |= 1L << cell;
+        }
+        return applyMove(removed, newTiles);
+    }
+
+    /**
+     * Plays a move on the board (see Bookworm.removeTiles), then updates the found words.
+     * @param path a bitmask of the cells of the word that was played (bit n is cell n), as path and
+     *             Bookworm.findPath give it
+     * @param newTiles the letters that drop in from the top
+     * @return a bitmask of the cells whose tile changed
+     * @throws IllegalArgumentException if path has a cell that is not on the board or has no tile
+     */
+    public long applyMove(long path, String newTiles){
+        for (long cells = path; cells != 0; cells &= cells - 1){
+            int cell = Long.numberOfTrailingZeros(cells);
+            if (cell >= book.grid().size() || book.tile(cell) < 0){
+                throw new IllegalArgumentException("Cell " + cell + " can not be part of a move");
+            }
+        }
+        long changed = book.removeTiles(path, newTiles);
+        if (changed == 0) return changed;
+
+        // forget every word whose path went through a changed cell
+        BitSet lost = new BitSet();
+        for (long cells = changed; cells != 0; cells &= cells - 1){
+            lost.or(byCell[Long.numberOfTrailingZeros(cells)]);
+        }
+        for (int node = lost.nextSetBit(0); node >= 0; node = lost.nextSetBit(node + 1)){
+            remove(node);
+        }
+
+        // find the words that now have a path through a changed cell
+        search(changed);
+
+        // a lost word can still have another path, which then has to avoid the changed cells
+        for (int node = lost.nextSetBit(0); node >= 0; node = lost.nextSetBit(node + 1)){
+            if (paths[node] == 0){
+                long other = book.findPath(trie.word(node), changed);
+                if (other != 0) add(node, other);
+            }
+        }
+        return changed;
+    }
+
+    private void add(int node, long path){
+        paths[node] = path;
+        found.set(node);
+        for (long cells = path; cells != 0; cells &= cells - 1){
+            byCell[Long.numberOfTrailingZeros(cells)].set(node);
+        }
+    }
+
+    private void remove(int node){
+        for (long cells = paths[node]; cells != 0; cells &= cells - 1){
+            byCell[Long.numberOfTrailingZeros(cells)].clear(node);
+        }
+        paths[node] = 0;
+        found.clear(node);
+    }
+
+    /**
+     * Adds the words that are not yet found and have a path through one of the target cells.
+     * @param target a bitmask of the cells a new path has to use
+     */
+    private void search(long target){
+        int[] distance = distances(target);
+        for (int cell =0; cell < book.grid().size(); cell++){
+            if (book.tile(cell) >= 0 && distance[cell] != FAR){
+                search(trie.root(), cell, 0L, target, distance);
+            }
+        }
+    }
+
+    /**
+     * Recursive part of the search. A path that has not reached a target cell yet is given up as soon as
+     * the nearest target cell is further away than the longest word below the node.
+     */
+    private void search(int node, int cell, long checked, long target, int[] distance){
+        int child = trie.child(node, book.tile(cell));
+        if (child < 0) return;
+        checked |= 1L << cell;
+        boolean touched = (checked & target) != 0;
+        if (!touched && distance[cell] > height[child]) return; // no word below can reach a target cell
+        if (touched && trie.isWord(child) && paths[child] == 0){
+            add(child, checked);
+        }
+        for (int next : book.grid().neighbours(cell)){
+            if ((checked & (1L << next)) == 0 && book.tile(next) >= 0){
+                search(child, next, checked, target, distance);
+            }
+        }
+    }
+
+    /**
+     * @return for each cell, the fewest steps from it to a target cell, going through cells with tiles
+     */
+    private int[] distances(long target){
+        int size = book.grid().size();
+        int[] distance = new int[size];
+        int[] queue = new int[size];
+        int head =0;
+        int tail =0;
+        for (int cell =0; cell < size; cell++){
+            if ((target & (1L << cell)) != 0 && book.tile(cell) >= 0){
+                distance[cell] =0;
+                queue[tail++] = cell;
+            }
+            else {
+                distance[cell] = FAR;
+            }
+        }
+        while (head < tail){
+            int cell = queue[head++];
+            for (int next : book.grid().neighbours(cell)){
+                if (distance[next] == FAR && book.tile(next) >= 0){
+                    distance[next] = distance[cell] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return distance;
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * A set of words that the board search can walk one tile at a time. Nodes are plain ints, so a
+ * lexicon can be stored in arrays or in a mapped file without an object for every node.
+ *
+ * @author Paul Macfarlane
+ * @version 1.0
+ */
+public interface Lexicon
+{
+    /**
+     * @return the node before any tile has been read
+     */
+    int root();
+
+    /**
+     * @param node the current node
+     * @param tile the code of the next tile (see WordTrie)
+     * @return the node reached by reading tile from node, or -1 if no word continues with that tile
+     */
+    int child(int node, int tile);
+
+    /**
+     * @return true if the tiles read to reach node make up a whole word
+     */
+    boolean isWord(int node);
+}
@@ -0,0 +1,511 @@
+/**
+ * Chooses a sequence of moves instead of a single word. Each move takes the tiles of a word off the board
+ * and lets the tiles above drop down, as Bookworm.removeTiles does. The letters that will drop in are not
+ * known, so the planner leaves the gaps empty, which means later moves can only use the tiles already on
+ * the board.
+ *
+ * The search looks the given number of moves ahead and adds up the scores of the words (see WordRanker).
+ * Below the first move only the best few words of each board are tried, found with the score bounds of
+ * WordRanker, and the words are tried from the highest score down. Boards that are reached by more than
+ * one order of moves are only searched once: the result for each board is kept in a transposition table,
+ * keyed by a Zobrist hash of the tiles (a random number for each tile in each cell, XORed together), which
+ * is updated from the cells a move changes. The table is kept between plans, so the next turn can reuse it.
+ * The first moves are shared out between the workers of a fork-join pool, and the search goes one move
+ * deeper at a time until the time budget runs out, keeping the deepest plan that was finished.
+ *
+ * Only boards of at most 64 cells are supported, since the cells of a path are kept as a bitmask.
+ *
+ * Usage: java MovePlanner input.txt [moves] [milliseconds]
+ *
+ * @author Paul Macfarlane
+ * @version 1.0
+ */
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+public class MovePlanner
+{
+    /** How many of the best words of a board are tried below the first move, when no width is given */
+    public static final int DEFAULT_WIDTH = 12;
+    private static final int TABLE_SIZE = 1 << 18; // the number of entries of the transposition table
+    private static final int MAX_DEPTH = 64; // the most moves a plan can look ahead
+
+    private final WordTrie trie;
+    private final WordRanker ranker;
+    private final int width;
+    private final long[] keys = new long[64 * WordTrie.TILES]; // keys[cell*TILES + tile] is the Zobrist key of tile in cell
+    private final long[] depthKeys = new long[MAX_DEPTH + 1]; // mixed into the hash, since a board is worth more with more moves left
+    // entries are never changed once made, so they can be shared between threads without locking
+    private final Entry[] table = new Entry[TABLE_SIZE];
+
+    /**
+     * @param trie the words that can be played
+     */
+    public MovePlanner(WordTrie trie){
+        this(trie, DEFAULT_WIDTH);
+    }
+
+    /**
+     * @param trie the words that can be played
+     * @param width how many of the best words of a board are tried below the first move
+     */
+    public MovePlanner(WordTrie trie, int width){
+        if (width < 1) throw new IllegalArgumentException("width must be at least 1");
+        this.trie = trie;
+        this.width = width;
+        ranker = new WordRanker(trie);
+        Random random = new Random(0x5EED); // a fixed seed, so the same board always hashes the same way
+        for (int i =0; i < keys.length; i++){
+            keys[i] = random.nextLong();
+        }
+        for (int i =0; i < depthKeys.length; i++){
+            depthKeys[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * Plans on the common fork-join pool.
+     * @see #plan(Bookworm, int, long, ForkJoinPool)
+     */
+    public Plan plan(Bookworm book, int moves, long budgetMillis){
+        return plan(book, moves, budgetMillis, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Finds the sequence of moves with the best total score. One move ahead is always searched in full, the
+     * deeper searches only while there is time left.
+     * @param book the board, which is not changed
+     * @param moves how many moves to look ahead
+     * @param budgetMillis how long to search for, in milliseconds
+     * @param pool the pool the first moves are shared out on
+     * @return the deepest plan that was finished in time
+     * @throws IllegalArgumentException if the board has more than 64 cells, or moves is not between 1 and 64
+     */
+    public Plan plan(Bookworm book, int moves, long budgetMillis, ForkJoinPool pool){
+        HexGrid grid = book.grid();
+        if (grid.size() > 64) throw new IllegalArgumentException("Boards of more than 64 cells are not supported");
+        if (moves < 1 || moves > MAX_DEPTH) throw new IllegalArgumentException("moves must be between 1 and " + MAX_DEPTH);
+        long deadline = System.nanoTime() + budgetMillis * 1000000L;
+        int[] tiles = new int[grid.size()];
+        long hash = salt(grid);
+        for (int cell =0; cell < tiles.length; cell++){
+            tiles[cell] = book.tile(cell);
+            if (tiles[cell] >= 0) hash ^= keys[cell * WordTrie.TILES + tiles[cell]];
+        }
+        LongAdder positions = new LongAdder();
+        Plan best = null;
+        for (int depth =1; depth <= moves; depth++){
+            try {
+                // the first search has no deadline, so there is always a plan to return
+                best = root(grid, tiles, hash, depth, (depth == 1) ? Long.MAX_VALUE : deadline, positions, pool);
+            } catch (OutOfTime e) {
+                break;
+            }
+            if (best.words().size() < depth) break; // the board runs out of words, so going deeper can not help
+        }
+        return best;
+    }
+
+    /**
+     * Searches every first move, each one as a task of the pool, then follows the table for the rest of the plan.
+     */
+    private Plan root(HexGrid grid, int[] tiles, long hash, int depth, long deadline, LongAdder positions, ForkJoinPool pool){
+        if (System.nanoTime() > deadline) throw OutOfTime.INSTANCE; // no time to find the first moves
+        Search search = new Search(grid, deadline, positions);
+        // every word of the board is tried as the first move, only the moves below it are cut to width
+        Moves first = search.moves(tiles, (depth == 1) ? 1 : Moves.ALL);
+        int[] values = new int[first.count];
+        pool.invoke(new RootTask(search, first, tiles, hash, depth, values, 0, first.count));
+        int best = -1;
+        for (int i =0; i < first.count; i++){
+            if (best < 0 || values[i] > values[best]) best = i;
+        }
+
+        List<String> words = new ArrayList<String>();
+        List<Long> paths = new ArrayList<Long>();
+        if (best >= 0){
+            words.add(trie.word(first.nodes[best]));
+            paths.add(first.paths[best]);
+            // the rest of the plan is the best move of each board after it, which the search left in the table
+            int[] board = tiles;
+            long key = hash;
+            int node = first.nodes[best];
+            long path = first.paths[best];
+            for (int left = depth - 1; left > 0; left--){
+                key = search.play(board, path, key);
+                board = search.after;
+                Entry entry = table[index(key ^ depthKeys[left])];
+                if (entry == null || entry.key != (key ^ depthKeys[left])){
+                    // pushed out of the table, so search it again. This has to keep to the deadline as well, and if
+                    // it runs out of time the plan of the depth before is used, as when the first moves run out
+                    search = new Search(grid, deadline, positions);
+                    search.search(board, key, left);
+                    entry = table[index(key ^ depthKeys[left])];
+                }
+                if (entry == null || entry.node < 0) break;
+                node = entry.node;
+                path = entry.path;
+                words.add(trie.word(node));
+                paths.add(path);
+            }
+        }
+        return new Plan(words, paths, (best < 0) ? 0 : values[best], depth, positions.sum());
+    }
+
+    /**
+     * @return the value the hash starts from for a grid, worked out from its shape, so boards of grids with
+     *         different shapes do not share table entries, and boards of grids with the same shape do
+     */
+    private static long salt(HexGrid grid){
+        long salt = mix(grid.rows() * 0x9E3779B97F4A7C15L + grid.cols());
+        for (int cell =0; cell < grid.size(); cell++){
+            salt = mix(salt + grid.row(cell) * (long) grid.cols() + grid.col(cell)); // the place of every cell
+        }
+        return salt;
+    }
+
+    /**
+     * @return the bits of value well mixed, so nearby values give unrelated results (the finish of SplitMix64)
+     */
+    private static long mix(long value){
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    private static int index(long key){
+        return (int) (key ^ (key >>> 32)) & (TABLE_SIZE - 1);
+    }
+
+    /**
+     * Searches a range of the first moves, splitting it until each task has one move.
+     */
+    private class RootTask extends RecursiveAction
+    {
+        private final Search search;
+        private final Moves first;
+        private final int[] tiles;
+        private final long hash;
+        private final int depth;
+        private final int[] values;
+        private final int from;
+        private final int to;
+
+        RootTask(Search search, Moves first, int[] tiles, long hash, int depth, int[] values, int from, int to){
+            this.search = search;
+            this.first = first;
+            this.tiles = tiles;
+            this.hash = hash;
+            this.depth = depth;
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute(){
+            if (to - from == 1){
+                Search own = search.copy(); // each task needs its own scratch board
+                long key = own.play(tiles, first.paths[from], hash);
+                values[from] = first.scores[from] + own.search(own.after, key, depth - 1);
+            }
+            else if (to > from){
+                int middle = (from + to) >>> 1;
+                invokeAll(new RootTask(search, first, tiles, hash, depth, values, from, middle),
+                          new RootTask(search, first, tiles, hash, depth, values, middle, to));
+            }
+        }
+    }
+
+    /**
+     * The state of one thread's search: the deadline, and the board the last move was played to.
+     */
+    private class Search
+    {
+        private final HexGrid grid;
+        private final long deadline;
+        private final LongAdder positions;
+        int[] after; // the tiles after the last call to play
+
+        Search(HexGrid grid, long deadline, LongAdder positions){
+            this.grid = grid;
+            this.deadline = deadline;
+            this.positions = positions;
+        }
+
+        Search copy(){
+            return new Search(grid, deadline, positions);
+        }
+
+        /**
+         * @return the best total score of depth moves from the board, which is remembered in the table
+         */
+        int search(int[] tiles, long hash, int depth){
+            if (depth == 0) return 0;
+            long key = hash ^ depthKeys[depth];
+            int slot = index(key);
+            Entry entry = table[slot];
+            if (entry != null && entry.key == key) return entry.value; // this board has been searched already
+            if (System.nanoTime() > deadline) throw OutOfTime.INSTANCE;
+            positions.increment();
+
+            Moves moves = moves(tiles, (depth == 1) ? 1 : width);
+            int best =0;
+            int bestMove = -1;
+            for (int i =0; i < moves.count; i++){
+                int value = moves.scores[i];
+                if (depth > 1){
+                    long next = play(tiles, moves.paths[i], hash);
+                    value += search(after, next, depth - 1);
+                }
+                if (bestMove < 0 || value > best){
+                    best = value;
+                    bestMove = i;
+                }
+            }
+            table[slot] = (bestMove < 0) ? new Entry(key, 0, -1, 0)
+                    : new Entry(key, best, moves.nodes[bestMove], moves.paths[bestMove]);
+            return best;
+        }
+
+        /**
+         * @return the k best scoring words on the board, from the highest score down, each with one path
+         */
+        Moves moves(int[] tiles, int k){
+            Moves moves = new Moves(k);
+            for (int cell =0; cell < tiles.length; cell++){
+                if (tiles[cell] >= 0){
+                    find(tiles, trie.root(), cell, 0L, moves);
+                }
+            }
+            return moves;
+        }
+
+        /**
+         * Recursive part of moves. Gives up on a path as soon as no word below it can get into the k best.
+         */
+        private void find(int[] tiles, int node, int cell, long checked, Moves moves){
+            int child = trie.child(node, tiles[cell]);
+            if (child < 0 || !moves.canImprove(ranker.bound(child))) return;
+            checked |= 1L << cell;
+            if (ranker.score(child) > 0){
+                moves.offer(child, ranker.score(child), checked);
+            }
+            for (int next : grid.neighbours(cell)){
+                if ((checked & (1L << next)) == 0 && tiles[next] >= 0){
+                    find(tiles, child, next, checked, moves);
+                }
+            }
+        }
+
+        /**
+         * Plays a move on a copy of the board, which is left in after: the cells of path are taken off, the
+         * tiles above them drop down, and the gaps at the top of the columns are left empty.
+         * @return the hash of the board after the move, worked out from the cells that changed
+         */
+        long play(int[] tiles, long path, long hash){
+            after = new int[tiles.length];
+            Arrays.fill(after, -1);
+            for (int col =0; col < grid.cols(); col++){
+                int to = grid.columnEnd(col) - 1;
+                for (int from = to; from >= grid.columnStart(col); from--){
+                    if ((path & (1L << from)) == 0){
+                        after[to] = tiles[from];
+                        to--;
+                    }
+                }
+            }
+            for (int cell =0; cell < tiles.length; cell++){
+                if (after[cell] != tiles[cell]){
+                    if (tiles[cell] >= 0) hash ^= keys[cell * WordTrie.TILES + tiles[cell]];
+                    if (after[cell] >= 0) hash ^= keys[cell * WordTrie.TILES + after[cell]];
+                }
+            }
+            return hash;
+        }
+    }
+
+    /**
+     * The k best words found so far on a board, sorted from the highest score down. A word is only kept
+     * with the first path it was found on. With k = ALL every word is kept, and the arrays grow as needed.
+     */
+    private static class Moves
+    {
+        static final int ALL = Integer.MAX_VALUE;
+
+        final int k;
+        int[] nodes;
+        int[] scores;
+        long[] paths;
+        int count;
+
+        Moves(int k){
+            this.k = k;
+            int size = Math.min(k, 64);
+            nodes = new int[size];
+            scores = new int[size];
+            paths = new long[size];
+        }
+
+        /**
+         * @return true if a word with the given score would get into the k best
+         */
+        boolean canImprove(int score){
+            if (score <= 0) return false;
+            return count < k || score > scores[count - 1];
+        }
+
+        void offer(int node, int score, long path){
+            if (!canImprove(score)) return;
+            for (int i =0; i < count; i++){
+                if (nodes[i] == node) return; // already found on another path
+            }
+            if (count == nodes.length && count < k){
+                int size = (int) Math.min((long) k, 2L * count);
+                nodes = Arrays.copyOf(nodes, size);
+                scores = Arrays.copyOf(scores, size);
+                paths = Arrays.copyOf(paths, size);
+            }
+            int i = (count < k) ? count++ : k - 1; // the worst word drops out when there is no room
+            while (i > 0 && scores[i - 1] < score){
+                nodes[i] = nodes[i - 1];
+                scores[i] = scores[i - 1];
+                paths[i] = paths[i - 1];
+                i--;
+            }
+            nodes[i] = node;
+            scores[i] = score;
+            paths[i] = path;
+        }
+    }
+
+    /**
+     * What the table knows about a board: the best total score with some moves left, and the first move of it
+     */
+    private static class Entry
+    {
+        final long key; // the hash of the board, mixed with the number of moves left
+        final int value;
+        final int node; // the trie node of the word of the best move, or -1 if there is no move
+        final long path;
+
+        Entry(long key, int value, int node, long path){
+            this.key = key;
+            this.value = value;
+            this.node = node;
+            this.path = path;
+        }
+    }
+
+    /**
+     * Thrown to stop a search when the time budget runs out. It has no stack trace, since it is thrown often.
+     */
+    private static class OutOfTime extends RuntimeException
+    {
+        static final OutOfTime INSTANCE = new OutOfTime();
+
+        private OutOfTime(){
+            super("Out of time", null, false, false);
+        }
+    }
+
+    /**
+     * A sequence of moves and what it scores.
+     */
+    public static class Plan
+    {
+        private final List<String> words;
+        private final List<Long> paths;
+        private final int score;
+        private final int depth;
+        private final long positions;
+
+        Plan(List<String> words, List<Long> paths, int score, int depth, long positions){
+            this.words = Collections.unmodifiableList(words);
+            this.paths = Collections.unmodifiableList(paths);
+            this.score = score;
+            this.depth = depth;
+            this.positions = positions;
+        }
+
+        /**
+         * @return the words to play, in order
+         */
+        public List<String> words(){
+            return words;
+        }
+
+        /**
+         * @return for each word, a bitmask of its cells (bit n is cell n) on the board as it is when the word is played
+         */
+        public List<Long> paths(){
+            return paths;
+        }
+
+        /**
+         * @return the total score of the words, in sixteenths of a point (see WordRanker.score)
+         */
+        public int score(){
+            return score;
+        }
+
+        /**
+         * @return how many moves ahead the search was finished
+         */
+        public int depth(){
+            return depth;
+        }
+
+        /**
+         * @return how many boards were searched, not counting the ones found in the table
+         */
+        public long positions(){
+            return positions;
+        }
+
+        @Override
+        public String toString(){
+            return words + " " + score / 16.0 + " points, " + depth + " moves ahead, " + positions + " boards searched";
+        }
+    }
+
+    /**
+     * Prints the best plan for the board in a file, out of the words listed after the board.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 3){
+            System.out.println("Usage: java MovePlanner <input file> [moves] [milliseconds]");
+            return;
+        }
+        int moves = (args.length > 1) ? Integer.parseInt(args[1]) : 3;
+        long millis = (args.length > 2) ? Long.parseLong(args[2]) : 100;
+        try {
+            BoardReader in = new BoardReader(args[0]);
+            try {
+                Bookworm book = Bookworm.fromLines(in.readBoard());
+                WordTrie trie = new WordTrie();
+                String word;
+                while ((word = in.nextWord()) != null){
+                    trie.add(word);
+                }
+                Plan plan = new MovePlanner(trie).plan(book, moves, millis);
+                for (String move : plan.words()){
+                    System.out.println(move + " " + WordRanker.score(move) / 16.0);
+                }
+                System.out.println(plan);
+            } finally {
+                in.close();
+            }
+        } catch (FileNotFoundException e) {
+            System.out.println ("File not found in directory");
+        }
+    }
+}
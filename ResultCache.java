@@ -0,0 +1,174 @@
+/**
+ * Remembers the results of searches, so a board that comes back again does not have to be searched again.
+ * Single words are remembered by the fingerprint of the board and the word, and whole-board solutions by
+ * the fingerprint and the lexicon. Each kind of result has its own limit, and when it is reached the least
+ * recently used result is dropped. A cache can be shared by many threads.
+ *
+ * @author Paul Macfarlane
+ * @version 1.0
+ */
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ResultCache
+{
+    private final Lru<Boolean> words; // results of findWord
+    private final Lru<Set<String>> solutions; // results of solve
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param wordCapacity how many single word results to keep
+     * @param boardCapacity how many whole-board solutions to keep
+     */
+    public ResultCache(int wordCapacity, int boardCapacity){
+        if (wordCapacity < 0 || boardCapacity < 0) throw new IllegalArgumentException("Capacity can not be negative");
+        words = new Lru<Boolean>(wordCapacity);
+        solutions = new Lru<Set<String>>(boardCapacity);
+    }
+
+    /**
+     * Same as book.findWord(word), but uses the remembered result if there is one.
+     */
+    public boolean findWord(Bookworm book, String word){
+        Key key = new Key(book.fingerprint(), word);
+        Boolean found = words.get(key);
+        if (found != null){
+            hits.incrementAndGet();
+            return found;
+        }
+        misses.incrementAndGet();
+        boolean result = book.findWord(word); // searched outside the lock, so other threads are not held up
+        words.put(key, result);
+        return result;
+    }
+
+    /**
+     * Same as book.solve(lexicon), but uses the remembered result if there is one.
+     * @return the words that were found, which can not be changed
+     */
+    public Set<String> solve(Bookworm book, Lexicon lexicon){
+        Key key = new Key(book.fingerprint(), lexicon);
+        Set<String> found = solutions.get(key);
+        if (found != null){
+            hits.incrementAndGet();
+            return found;
+        }
+        misses.incrementAndGet();
+        Set<String> result = Collections.unmodifiableSet(book.solve(lexicon));
+        solutions.put(key, result);
+        return result;
+    }
+
+    /**
+     * @return how many times a remembered result was used
+     */
+    public long hits(){
+        return hits.get();
+    }
+
+    /**
+     * @return how many times a search had to be done
+     */
+    public long misses(){
+        return misses.get();
+    }
+
+    /**
+     * @return how many results were dropped to make room for new ones
+     */
+    public long evictions(){
+        return evictions.get();
+    }
+
+    /**
+     * @return the number of results remembered
+     */
+    public int size(){
+        return words.size() + solutions.size();
+    }
+
+    /**
+     * Forgets every result. The counters are kept.
+     */
+    public void clear(){
+        words.clear();
+        solutions.clear();
+    }
+
+    @Override
+    public String toString(){
+        return "hits=" + hits() + " misses=" + misses() + " evictions=" + evictions() + " size=" + size();
+    }
+
+    /**
+     * A map that keeps its entries in order of use, and drops the oldest one when it is full.
+     */
+    private class Lru<V>
+    {
+        private final int capacity;
+        private final LinkedHashMap<Key, V> map;
+
+        Lru(final int capacity){
+            this.capacity = capacity;
+            map = new LinkedHashMap<Key, V>(16, 0.75f, true){
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, V> eldest){
+                    if (size() > Lru.this.capacity){
+                        evictions.incrementAndGet();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        synchronized V get(Key key){
+            return map.get(key);
+        }
+
+        synchronized void put(Key key, V value){
+            if (capacity > 0) map.put(key, value);
+        }
+
+        synchronized int size(){
+            return map.size();
+        }
+
+        synchronized void clear(){
+            map.clear();
+        }
+    }
+
+    /**
+     * The fingerprint of a board with a word or a lexicon. Lexicons are equal only if they are the same object.
+     */
+    private static class Key
+    {
+        private final String board;
+        private final Object query;
+        private final int hash;
+
+        Key(String board, Object query){
+            this.board = board;
+            this.query = query;
+            hash = 31 * board.hashCode() + query.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object other){
+            if (!(other instanceof Key)) return false;
+            Key key = (Key) other;
+            return hash == key.hash && board.equals(key.board) && query.equals(key.query);
+        }
+
+        @Override
+        public int hashCode(){
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+/**
+ * Where the results of checking a dictionary against a board go. The results are handed over a chunk at a
+ * time, in dictionary order, so a sink can number the words without being told their indexes.
+ *
+ * The formats are:
+ *   text    "WORD was found." or "WORD was not found." per line, as main has always printed
+ *   jsonl   one JSON object per line: {"index":0,"word":"WORD","found":true}
+ *   bitset  one bit per dictionary word, set if it was found: bit i is bit (i % 8) of byte (i / 8), and the
+ *           last byte is padded with zeros. Nothing else is written, so the reader has to know the word count
+ * The text and jsonl sinks can leave out the words that were not found. All of them write through a large
+ * buffer, and async wraps a sink so the writing is done on a thread of its own. A sink does not own the
+ * stream it writes to, so closing the sink flushes the stream but leaves it open.
+ * Everything is written in ISO-8859-1, the charset BoardReader reads the words in.
+ *
+ * @author Paul Macfarlane
+ * @version 1.0
+ */
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+public interface ResultSink extends Closeable
+{
+    /** The size of the buffer of every sink */
+    int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Writes the results of the next words of the dictionary.
+     * @param words the words, in dictionary order
+     * @param found for each word, true if it is on the board
+     * @throws IOException if writing fails
+     */
+    void write(List<String> words, boolean[] found) throws IOException;
+
+    /**
+     * Writes out anything still buffered, and flushes the stream. The stream is not closed.
+     * @throws IOException if writing fails
+     */
+    @Override
+    void close() throws IOException;
+
+    /**
+     * @return true if format is the name of a format open knows
+     */
+    static boolean isFormat(String format){
+        return format.equals("text") || format.equals("jsonl") || format.equals("bitset");
+    }
+
+    /**
+     * Opens a sink by the name of its format.
+     * @param format "text", "jsonl" or "bitset"
+     * @param out where to write
+     * @param foundOnly true to leave out the words that were not found (the bitset always has every word)
+     * @return the sink
+     * @throws IllegalArgumentException if the format is not known
+     */
+    static ResultSink open(String format, OutputStream out, boolean foundOnly){
+        if (format.equals("text")) return new Text(out, foundOnly);
+        if (format.equals("jsonl")) return new JsonLines(out, foundOnly);
+        if (format.equals("bitset")) return new Bitset(out);
+        throw new IllegalArgumentException("Unknown output format " + format + ", expected text, jsonl or bitset");
+    }
+
+    /**
+     * @param sink the sink to write to
+     * @param capacity how many chunks can be waiting to be written before write has to wait
+     * @return a sink that hands the chunks to a writer thread, which writes them to sink
+     */
+    static ResultSink async(ResultSink sink, int capacity){
+        return new Async(sink, capacity);
+    }
+
+    /**
+     * The plain text lines main has always printed.
+     */
+    class Text implements ResultSink
+    {
+        private final Writer out;
+        private final boolean foundOnly;
+
+        public Text(OutputStream out, boolean foundOnly){
+            // the words are plain letters, so a single byte charset is enough and the cheapest to encode
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.ISO_8859_1), BUFFER_SIZE);
+            this.foundOnly = foundOnly;
+        }
+
+        @Override
+        public void write(List<String> words, boolean[] found) throws IOException {
+            for (int i =0; i < words.size(); i++){
+                if (found[i]){
+                    out.write(words.get(i));
+                    out.write(" was found.");
+                    out.write(System.lineSeparator());
+                }
+                else if (!foundOnly){
+                    out.write(words.get(i));
+                    out.write(" was not found.");
+                    out.write(System.lineSeparator());
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+
+    /**
+     * One JSON object per word, with the index of the word in the dictionary. Characters outside of ASCII
+     * are escaped, so the output is the same in ISO-8859-1 and in the UTF-8 JSON readers expect.
+     */
+    class JsonLines implements ResultSink
+    {
+        private final Writer out;
+        private final boolean foundOnly;
+        private long index; // the dictionary index of the next word
+
+        public JsonLines(OutputStream out, boolean foundOnly){
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.ISO_8859_1), BUFFER_SIZE);
+            this.foundOnly = foundOnly;
+        }
+
+        @Override
+        public void write(List<String> words, boolean[] found) throws IOException {
+            for (int i =0; i < words.size(); i++, index++){
+                if (foundOnly && !found[i]) continue;
+                out.write("{\"index\":");
+                out.write(Long.toString(index));
+                out.write(",\"word\":\"");
+                writeEscaped(words.get(i));
+                out.write(found[i] ? "\",\"found\":true}\n" : "\",\"found\":false}\n");
+            }
+        }
+
+        /**
+         * Writes word as the inside of a JSON string
+         */
+        private void writeEscaped(String word) throws IOException {
+            for (int i =0; i < word.length(); i++){
+                char c = word.charAt(i);
+                if (c == '"' || c == '\\'){
+                    out.write('\\');
+                    out.write(c);
+                }
+                else if (c < 0x20 || c > 0x7e){
+                    out.write(String.format("\\u%04x", (int) c));
+                }
+                else {
+                    out.write(c);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+
+    /**
+     * One bit per word, 8 words to a byte.
+     */
+    class Bitset implements ResultSink
+    {
+        private final OutputStream out;
+        private int bits; // the bits of the byte being filled
+        private int count; // how many bits of it are used
+
+        public Bitset(OutputStream out){
+            this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+        }
+
+        @Override
+        public void write(List<String> words, boolean[] found) throws IOException {
+            for (int i =0; i < words.size(); i++){
+                if (found[i]) bits |= 1 << count;
+                if (++count == 8){
+                    out.write(bits);
+                    bits =0;
+                    count =0;
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (count > 0) out.write(bits); // the last byte, padded with zeros
+            count =0;
+            bits =0;
+            out.flush();
+        }
+    }
+
+    /**
+     * Writes to another sink on a thread of its own, so the searching never waits for the output unless
+     * it gets too far ahead. A failure of the writer thread is thrown by the next write or by close, and an
+     * unchecked exception of the sink is thrown as an IOException.
+     */
+    class Async implements ResultSink
+    {
+        private static final Chunk END = new Chunk(null, null); // marks the end of the chunks
+
+        private final ResultSink sink;
+        private final BlockingQueue<Chunk> pending;
+        private final Thread writer;
+        private volatile IOException failure; // the first error of the writer thread, if any
+        private boolean closed;
+
+        public Async(ResultSink sink, int capacity){
+            this.sink = sink;
+            pending = new ArrayBlockingQueue<Chunk>(capacity);
+            writer = new Thread(this::drain, "bookworm-output");
+            writer.start();
+        }
+
+        /**
+         * Hands the chunk to the writer thread. The words are copied, so the caller can reuse its list.
+         */
+        @Override
+        public void write(List<String> words, boolean[] found) throws IOException {
+            if (failure != null) throw failure;
+            put(new Chunk(new ArrayList<String>(words), found.clone())); // waits if the queue is full
+        }
+
+        /**
+         * Waits for every chunk to be written, then closes the sink, which flushes it.
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            put(END);
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the output", e);
+            }
+            try {
+                sink.close();
+            } catch (IOException e) {
+                if (failure == null) failure = e;
+            } catch (RuntimeException e) {
+                if (failure == null) failure = new IOException("Writing the output failed: " + e, e);
+            }
+            if (failure != null) throw failure;
+        }
+
+        private void put(Chunk chunk) throws IOException {
+            try {
+                pending.put(chunk);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the output", e);
+            }
+        }
+
+        private void drain(){
+            try {
+                Chunk next = pending.take();
+                while (next != END){
+                    try {
+                        if (failure == null) sink.write(next.words, next.found);
+                    } catch (IOException e) {
+                        failure = e; // keep taking from the queue, so write is never left waiting
+                    } catch (UncheckedIOException e) {
+                        failure = e.getCause();
+                    } catch (RuntimeException e) { // a bug of the sink must not end the thread and lose the output silently
+                        failure = new IOException("Writing the output failed: " + e, e);
+                    }
+                    next = pending.take();
+                }
+            } catch (InterruptedException e) {
+                failure = new IOException("Interrupted while writing the output", e);
+            }
+        }
+
+        private static class Chunk
+        {
+            final List<String> words;
+            final boolean[] found;
+
+            Chunk(List<String> words, boolean[] found){
+                this.words = words;
+                this.found = found;
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * Counters and latency histograms of the board searches, to help find the words and boards that are slow.
+ * The stats are off unless the JVM is started with -Dbookworm.stats=true. ENABLED is a constant, so when it
+ * is false the JIT removes the counting from the searches and it costs nothing.
+ *
+ * What is counted:
+ *   nodes       cells that matched the next tile and were expanded
+ *   backtracks  expanded cells that no neighbour carried the path on from (dead ends)
+ *   starts      cells a search was started from
+ *   quBranches  expanded cells holding the 'QU' tile
+ * and the time of each findWord (per word), and of each solve and each batch of checkAll or checkSorted
+ * (per board), with the slowest one of each. main checks a board a chunk of words at a time, so each
+ * chunk is a board of its own there.
+ *
+ * @author Paul Macfarlane
+ * @version 1.0
+ */
+import java.io.PrintStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class SearchStats
+{
+    /** True if stats are being kept */
+    public static final boolean ENABLED = Boolean.getBoolean("bookworm.stats");
+
+    public static final LongAdder nodes = new LongAdder();
+    public static final LongAdder backtracks = new LongAdder();
+    public static final LongAdder starts = new LongAdder();
+    public static final LongAdder quBranches = new LongAdder();
+    public static final Histogram words = new Histogram();
+    public static final Histogram boards = new Histogram();
+
+    private SearchStats(){
+    }
+
+    /**
+     * Sets every counter and histogram back to zero
+     */
+    public static void reset(){
+        nodes.reset();
+        backtracks.reset();
+        starts.reset();
+        quBranches.reset();
+        words.reset();
+        boards.reset();
+    }
+
+    /**
+     * @return the stats as lines of text
+     */
+    public static String toText(){
+        return "nodes=" + nodes.sum() + " backtracks=" + backtracks.sum() + " starts=" + starts.sum()
+            + " quBranches=" + quBranches.sum() + "\n"
+            + "words:  " + words.toText() + "\n"
+            + "boards: " + boards.toText() + "\n";
+    }
+
+    /**
+     * @return the stats as one JSON object
+     */
+    public static String toJson(){
+        return "{\"nodes\":" + nodes.sum() + ",\"backtracks\":" + backtracks.sum() + ",\"starts\":" + starts.sum()
+            + ",\"quBranches\":" + quBranches.sum()
+            + ",\"words\":" + words.toJson() + ",\"boards\":" + boards.toJson() + "}";
+    }
+
+    /**
+     * Writes the stats to out every period, on a background thread.
+     * @param out where to write the stats
+     * @param period how often to write them
+     * @param unit the unit of period
+     * @param json true to write JSON, false for text
+     * @return the scheduler, which stops the dumps when it is shut down
+     */
+    public static ScheduledExecutorService dumpEvery(final PrintStream out, long period, TimeUnit unit, final boolean json){
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "bookworm-stats");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> {
+            out.println(json ? toJson() : toText());
+            out.flush();
+        }, period, period, unit);
+        return scheduler;
+    }
+
+    /**
+     * A histogram of times in nanoseconds, with a bucket for each power of 2. Safe to use from many threads.
+     */
+    public static class Histogram
+    {
+        private final AtomicLongArray buckets = new AtomicLongArray(64); // buckets[i] counts times t with 2^(i-1) < t <= 2^i
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private volatile long max; // the slowest time, and what it was for
+        private String slowest;
+
+        /**
+         * @param nanos the time taken
+         * @param label what the time was for, kept if it is the slowest so far
+         */
+        public void record(long nanos, String label){
+            buckets.incrementAndGet(Math.min(64 - Long.numberOfLeadingZeros(Math.max(nanos - 1, 0)), 63));
+            count.increment();
+            total.add(nanos);
+            if (nanos > max){
+                synchronized (this){
+                    if (nanos > max){
+                        max = nanos;
+                        slowest = label;
+                    }
+                }
+            }
+        }
+
+        public long count(){
+            return count.sum();
+        }
+
+        public synchronized long max(){
+            return max;
+        }
+
+        /**
+         * @return what the slowest time was for, or null if nothing has been recorded
+         */
+        public synchronized String slowest(){
+            return slowest;
+        }
+
+        /**
+         * @param fraction between 0 and 1, for example 0.99
+         * @return an upper bound on the time that fraction of the times are below, in nanoseconds
+         */
+        public long percentile(double fraction){
+            long target = (long) Math.ceil(fraction * count());
+            long seen =0;
+            for (int i =0; i < 64; i++){
+                seen += buckets.get(i);
+                if (seen >= target && seen > 0) return 1L << i;
+            }
+            return 0;
+        }
+
+        public synchronized void reset(){
+            for (int i =0; i < 64; i++){
+                buckets.set(i, 0);
+            }
+            count.reset();
+            total.reset();
+            max =0;
+            slowest = null;
+        }
+
+        String toText(){
+            long n = count();
+            return "count=" + n + " mean=" + (n == 0 ? 0 : total.sum() / n) + "ns p50<=" + percentile(0.5)
+                + "ns p99<=" + percentile(0.99) + "ns max=" + max() + "ns slowest=" + slowest();
+        }
+
+        String toJson(){
+            long n = count();
+            String label = slowest();
+            return "{\"count\":" + n + ",\"meanNanos\":" + (n == 0 ? 0 : total.sum() / n)
+                + ",\"p50Nanos\":" + percentile(0.5) + ",\"p99Nanos\":" + percentile(0.99) + ",\"maxNanos\":" + max()
+                + ",\"slowest\":" + (label == null ? "null" : "\"" + label.replace("\\", "\\\\").replace("\"", "\\\"") + "\"")
+                + "}";
+        }
+    }
+}
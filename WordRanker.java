@@ -0,0 +1,224 @@
+/**
+ * Finds the highest scoring words of a board. Words are scored with the letter values of Bookworm, where
+ * common letters are worth 1 point and rare ones up to 2.75 for the 'QU' tile, and the sum is multiplied
+ * by a bonus that grows with the length of the word. Lengths are counted in letters, as in the game, so the
+ * 'QU' tile counts as two: QUA is a 3 letter word, long enough to play.
+ * Each node of the trie knows the best score of any word below it, so the search gives up on a path as
+ * soon as nothing it could still spell would get into the top K words.
+ *
+ * Usage: java WordRanker input.txt 10
+ *
+ * @author Paul Macfarlane
+ * @version 1.0
+ */
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+public class WordRanker
+{
+    /** Words of fewer letters than this can not be played */
+    public static final int MIN_LENGTH = 3;
+
+    // the value of each tile in quarter points: 4 is 1 point, 5 is 1.25 and so on
+    private static final int[] VALUES = {
+            4, 5, 5, 4, 4, 5, 4, 5, 4, 7, 7, 4, 5, // A to M
+            4, 4, 5, 11, 4, 4, 4, 4, 6, 6, 8, 6, 8, // N to Z (Q is only used as part of 'QU')
+            11}; // QU
+    // the multiplier for a word of each number of letters, in quarters
+    private static final int[] LENGTH_BONUS = {0, 0, 0, 4, 5, 6, 7, 8, 10, 12, 14, 16, 18};
+
+    private final WordTrie trie;
+    private final int[] scores; // scores[node] is the score of the word at node, or -1 if node is not a word
+    private final int[] best; // best[node] is the best score of the word at node or any word below it, or -1
+
+    /**
+     * Works out the best score below each node of the trie.
+     * @param trie the words that can be played
+     */
+    public WordRanker(WordTrie trie){
+        this.trie = trie;
+        scores = new int[trie.size()];
+        best = new int[trie.size()];
+        // children always come after their parent, so going backwards sees each child before its parent
+        for (int node = trie.size() - 1; node >= 0; node--){
+            scores[node] = trie.isWord(node) ? score(trie.word(node)) : -1;
+            int score = scores[node];
+            for (int tile =0; tile < WordTrie.TILES; tile++){
+                int child = trie.child(node, tile);
+                if (child >= 0 && best[child] > score){
+                    score = best[child];
+                }
+            }
+            best[node] = score;
+        }
+    }
+
+    /**
+     * @param word the word to score
+     * @return the score of the word in sixteenths of a point, 0 if it has fewer than MIN_LENGTH letters,
+     *         or -1 if it can not be made from tiles
+     */
+    public static int score(String word){
+        if (WordTrie.tileCount(word) < 0) return -1;
+        if (word.length() < MIN_LENGTH) return 0;
+        int sum =0;
+        int i =0;
+        while (i < word.length()){
+            int tile = WordTrie.tileAt(word, i);
+            sum += VALUES[tile];
+            i += (tile == WordTrie.QU) ? 2 : 1;
+        }
+        return sum * LENGTH_BONUS[Math.min(word.length(), LENGTH_BONUS.length - 1)];
+    }
+
+    /**
+     * @return the score of the word at node of the trie, or -1 if node is not a word
+     */
+    int score(int node){
+        return scores[node];
+    }
+
+    /**
+     * @return the best score of the word at node of the trie or any word below it, or -1 if there is none
+     */
+    int bound(int node){
+        return best[node];
+    }
+
+    /**
+     * Finds the k best scoring words of the trie that are on the board.
+     * @param book the board to search
+     * @param k how many words to return
+     * @return the words, from the highest score to the lowest. Words with the same score are in alphabetical order
+     */
+    public List<String> top(Bookworm book, int k){
+        Top result = new Top(k);
+        if (k > 0){
+            long[] checked = new long[(book.grid().size() + 63) >>> 6]; // the cells of the current path, bit n is cell n
+            for (int cell =0; cell < book.grid().size(); cell++){
+                if (book.tile(cell) >= 0){
+                    search(book, trie.root(), cell, checked, result);
+                }
+            }
+        }
+        return result.sorted();
+    }
+
+    /**
+     * Recursive part of the search. Stops as soon as the best word below the node can not beat the
+     * k-th best word found so far. The recursion is never deeper than the longest word of the trie.
+     */
+    private void search(Bookworm book, int node, int cell, long[] checked, Top result){
+        int child = trie.child(node, book.tile(cell));
+        if (child < 0 || !result.canImprove(best[child])) return;
+        if (scores[child] > 0){
+            result.offer(trie.word(child), scores[child]);
+        }
+        checked[cell >>> 6] |= 1L << cell;
+        for (int next : book.grid().neighbours(cell)){
+            if ((checked[next >>> 6] & (1L << next)) == 0 && book.tile(next) >= 0){
+                search(book, child, next, checked, result);
+            }
+        }
+        checked[cell >>> 6] &= ~(1L << cell); // take the cell off the path again
+    }
+
+    /**
+     * The k best words found so far, kept in a heap with the worst of them on top.
+     */
+    private static class Top
+    {
+        private final int k;
+        private final PriorityQueue<Scored> heap = new PriorityQueue<Scored>();
+        private final Set<String> words = new HashSet<String>(); // the words in the heap, since a word can be found by many paths
+
+        Top(int k){
+            this.k = k;
+        }
+
+        /**
+         * @return true if a word with the given score could get into the top k. A word with the same score
+         *         as the worst of the top k can still get in, if it comes first in alphabetical order
+         */
+        boolean canImprove(int score){
+            if (score <= 0) return false;
+            return heap.size() < k || score >= heap.peek().score;
+        }
+
+        void offer(String word, int score){
+            if (!canImprove(score) || words.contains(word)) return;
+            Scored scored = new Scored(word, score);
+            if (heap.size() == k){
+                if (scored.compareTo(heap.peek()) <= 0) return; // a tie, and the word is later in alphabetical order
+                words.remove(heap.poll().word);
+            }
+            heap.add(scored);
+            words.add(word);
+        }
+
+        List<String> sorted(){
+            List<Scored> all = new ArrayList<Scored>(heap);
+            Collections.sort(all, Collections.reverseOrder());
+            List<String> result = new ArrayList<String>(all.size());
+            for (Scored scored : all){
+                result.add(scored.word);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * A word and its score, ordered by score and then reverse alphabetically, so the heap drops
+     * the later of two words with the same score.
+     */
+    private static class Scored implements Comparable<Scored>
+    {
+        final String word;
+        final int score;
+
+        Scored(String word, int score){
+            this.word = word;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Scored other){
+            if (score != other.score) return Integer.compare(score, other.score);
+            return other.word.compareTo(word);
+        }
+    }
+
+    /**
+     * Prints the best words of the board in a file, out of the words listed after the board.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2){
+            System.out.println("Usage: java WordRanker <input file> <number of words>");
+            return;
+        }
+        try {
+            BoardReader in = new BoardReader(args[0]);
+            try {
+                Bookworm book = Bookworm.fromLines(in.readBoard());
+                WordTrie trie = new WordTrie();
+                String word;
+                while ((word = in.nextWord()) != null){
+                    trie.add(word);
+                }
+                for (String best : new WordRanker(trie).top(book, Integer.parseInt(args[1]))){
+                    System.out.println(best + " " + score(best) / 16.0);
+                }
+            } finally {
+                in.close();
+            }
+        } catch (FileNotFoundException e) {
+            System.out.println ("File not found in directory");
+        }
+    }
+}
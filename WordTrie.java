@@ -0,0 +1,150 @@
+/**
+ * Prefix tree of the words to look for in a board. Each edge of the tree is one tile of the board,
+ * so the 'QU' tile is a single edge rather than a 'Q' edge followed by a 'U' edge.
+ * The nodes are stored in one int array (27 slots per node), so that a large dictionary does not
+ * create an object for every node.
+ *
+ * @author Paul Macfarlane
+ * @version 1.0
+ */
+public class WordTrie implements Lexicon
+{
+    /** The tile code of the 'QU' tile. The letters 'A' to 'Z' are the codes 0 to 25 */
+    public static final int QU = 26;
+    /** The number of different tiles, and so the number of children each node can have */
+    public static final int TILES = 27;
+
+    private int[] children = new int[TILES * 64]; // children[node*TILES + tile] is the child node, or 0 if there is none
+    private String[] words = new String[64]; // words[node] is the word that ends at node, or null
+    private int nodes = 1; // node 0 is the root
+
+    /**
+     * Creates an empty trie
+     */
+    public WordTrie(){
+    }
+
+    /**
+     * Creates a trie holding every word of dictionary
+     * @param dictionary the words to add
+     */
+    public WordTrie(Iterable<String> dictionary){
+        for (String word : dictionary){
+            add(word);
+        }
+    }
+
+    /**
+     * Adds a word to the trie. Words that can not be made out of board tiles (for example a 'Q' that is
+     * not followed by a 'U') are left out, because they can never be found.
+     * @param word the word to add
+     * @return true if the word can be made from tiles and was added
+     */
+    public boolean add(String word){
+        if (tileCount(word) <= 0) return false;
+        int node =0;
+        int i =0;
+        while (i < word.length()){
+            int tile = tileAt(word, i);
+            i += (tile == QU) ? 2 : 1;
+            int child = children[node * TILES + tile];
+            if (child == 0){
+                child = newNode();
+                children[node * TILES + tile] = child;
+            }
+            node = child;
+        }
+        words[node] = word;
+        return true;
+    }
+
+    private int newNode(){
+        if (nodes == words.length){
+            int[] biggerChildren = new int[children.length * 2];
+            System.arraycopy(children, 0, biggerChildren, 0, children.length);
+            children = biggerChildren;
+            String[] biggerWords = new String[words.length * 2];
+            System.arraycopy(words, 0, biggerWords, 0, words.length);
+            words = biggerWords;
+        }
+        return nodes++;
+    }
+
+    @Override
+    public int root(){
+        return 0;
+    }
+
+    @Override
+    public int child(int node, int tile){
+        int child = children[node * TILES + tile];
+        return (child == 0) ? -1 : child;
+    }
+
+    @Override
+    public boolean isWord(int node){
+        return words[node] != null;
+    }
+
+    /**
+     * @return the word that ends at node, or null if node is only a prefix
+     */
+    public String word(int node){
+        return words[node];
+    }
+
+    /**
+     * @return the number of nodes in the trie. Children always have a larger number than their parent
+     */
+    public int size(){
+        return nodes;
+    }
+
+    /**
+     * Works out the code of the tile that starts at position i of word.
+     * @return the tile code, or -1 if no tile starts with that character
+     */
+    public static int tileAt(String word, int i){
+        char c = word.charAt(i);
+        if (c == 'Q'){
+            return word.startsWith("QU", i) ? QU : -1; // the only 'Q' on the board is the 'QU' tile
+        }
+        if (c < 'A' || c > 'Z') return -1;
+        return c - 'A';
+    }
+
+    /**
+     * @return the number of tiles needed to make word, or -1 if it can not be made from tiles
+     */
+    public static int tileCount(String word){
+        int count =0;
+        int i =0;
+        while (i < word.length()){
+            int tile = tileAt(word, i);
+            if (tile < 0) return -1;
+            i += (tile == QU) ? 2 : 1;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @param cell the contents of a cell of the board
+     * @return the tile code of the cell, or -1 if the cell is empty
+     */
+    public static int tileOf(String cell){
+        if (cell.equals("QU")) return QU;
+        if (cell.length() != 1) return -1;
+        char c = cell.charAt(0);
+        if (c < 'A' || c > 'Z') return -1;
+        return c - 'A';
+    }
+
+    /**
+     * @return the text of the tile with the given code
+     */
+    public static String text(int tile){
+        if (tile == QU) return "QU";
+        return String.valueOf((char) ('A' + tile));
+    }
+}
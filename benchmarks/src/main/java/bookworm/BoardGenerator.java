@@ -0,0 +1,199 @@
+package bookworm;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Makes boards and dictionaries for the benchmarks. Everything comes from one seeded Random, so the same
+ * seed gives the same boards and words on every machine.
+ *
+ * @author Paul Macfarlane
+ * @version 1.0
+ */
+public class BoardGenerator
+{
+    // letters weighted roughly by how often they appear in English words
+    private static final String LETTERS =
+            "EEEEEEEEEEEEAAAAAAAAAIIIIIIIIIOOOOOOOONNNNNNRRRRRRTTTTTTLLLLSSSSUUUUDDDDGGGBBCCMMPPFFHHVVWWYYKJXQZ";
+
+    private final Random random;
+
+    /**
+     * @param seed the seed of the random numbers
+     */
+    public BoardGenerator(long seed){
+        random = new Random(seed);
+    }
+
+    /**
+     * @return the 7 lines of a board of random letters
+     */
+    public String[] board(){
+        String[] lines = new String[BoardReader.COLUMNS];
+        for (int col =0; col < lines.length; col++){
+            StringBuilder line = new StringBuilder();
+            for (int row =0; row < height(col); row++){
+                line.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+            }
+            lines[col] = line.toString();
+        }
+        return lines;
+    }
+
+    /**
+     * @return the 7 lines of a board where almost every tile is letter, the worst case for the search,
+     *         since every path matches as far as a word of that letter goes. The bottom right corner holds
+     *         the last letter of longMiss next to a single tile of letter, and three wall tiles cut the two of
+     *         them off from the rest. The board's filter then lets a long miss through, since it has the tiles
+     *         and the pairs the word needs, but no path of the rest of the board can reach the last letter
+     */
+    public static String[] repeated(char letter){
+        char wall = (letter == 'A') ? 'B' : 'A';
+        String[] lines = new String[BoardReader.COLUMNS];
+        for (int col =0; col < lines.length; col++){
+            char[] line = new char[height(col)];
+            Arrays.fill(line, letter);
+            lines[col] = new String(line);
+        }
+        lines[4] = lines[4].substring(0, 6) + wall; // (6, 4)
+        lines[5] = lines[5].substring(0, 6) + wall + letter; // (6, 5), and the single tile at (7, 5)
+        lines[6] = lines[6].substring(0, 5) + wall + end(letter); // (5, 6), and the last letter at (6, 6)
+        return lines;
+    }
+
+    /**
+     * @return the 7 lines of a board where about half the tiles are 'QU'
+     */
+    public String[] quHeavy(){
+        String[] lines = board();
+        for (int col =0; col < lines.length; col++){
+            char[] line = lines[col].toCharArray();
+            for (int row =0; row < line.length; row++){
+                if (random.nextBoolean()) line[row] = 'Q';
+            }
+            lines[col] = new String(line);
+        }
+        return lines;
+    }
+
+    /**
+     * Makes a dictionary for a board. The words that should be found are read off random paths of the
+     * board, and the rest are random letters, which are almost never on the board.
+     * @param lines the lines of the board
+     * @param size how many words to make
+     * @param hitRatio the share of the words, from 0 to 1, that are taken from the board
+     * @return the words, in random order
+     */
+    public List<String> dictionary(String[] lines, int size, double hitRatio){
+        Bookworm book = new Bookworm(lines);
+        List<String> words = new ArrayList<String>(size);
+        for (int i =0; i < size; i++){
+            int length = 3 + random.nextInt(6);
+            words.add(random.nextDouble() < hitRatio ? walk(book, length) : randomWord(length));
+        }
+        return words;
+    }
+
+    /**
+     * @return a word of length tiles read along a random path of the board, or a shorter one if the path gets stuck
+     */
+    public String walk(Bookworm book, int length){
+        HexGrid grid = book.grid();
+        int cell;
+        do {
+            cell = random.nextInt(grid.size());
+        } while (book.tile(cell) < 0);
+        StringBuilder word = new StringBuilder(WordTrie.text(book.tile(cell)));
+        long used = 1L << cell;
+        for (int i =1; i < length; i++){
+            int[] neighbours = grid.neighbours(cell);
+            int start = random.nextInt(neighbours.length);
+            int next = -1;
+            for (int j =0; j < neighbours.length && next < 0; j++){
+                int candidate = neighbours[(start + j) % neighbours.length];
+                if ((used & (1L << candidate)) == 0 && book.tile(candidate) >= 0) next = candidate;
+            }
+            if (next < 0) break;
+            cell = next;
+            used |= 1L << cell;
+            word.append(WordTrie.text(book.tile(cell)));
+        }
+        return word.toString();
+    }
+
+    /**
+     * @return a word of length tiles that is not on the board but gets past the board's filter, so looking it
+     *         up has to search: a random path of the board with a tile of another cell put on the end
+     */
+    public String miss(Bookworm book, int length){
+        while (true){
+            String word = walk(book, length - 1);
+            int cell = random.nextInt(book.grid().size());
+            if (book.tile(cell) < 0) continue;
+            word += WordTrie.text(book.tile(cell));
+            if (WordTrie.tileCount(word) == length && book.filter().mightContain(word) && !book.findWord(word)){
+                return word;
+            }
+        }
+    }
+
+    /**
+     * @return a word of random letters
+     */
+    public String randomWord(int length){
+        StringBuilder word = new StringBuilder(length);
+        for (int i =0; i < length; i++){
+            word.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+        }
+        return word.toString();
+    }
+
+    /**
+     * @return a word of length - 1 copies of letter and then the letter that a repeated(letter) board walls
+     *         off, so the word gets past the filter and the search has to try every path before it can give up
+     */
+    public static String longMiss(char letter, int length){
+        char[] word = new char[length];
+        Arrays.fill(word, letter);
+        word[length - 1] = end(letter);
+        return new String(word);
+    }
+
+    /**
+     * @return the last letter of longMiss(letter, length)
+     */
+    private static char end(char letter){
+        return (letter == 'Z') ? 'Y' : 'Z';
+    }
+
+    /**
+     * Writes an input file in the format read by Bookworm: the board, a blank line, then one word per line.
+     */
+    public static void write(String[] lines, List<String> words, Path file) throws IOException {
+        BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.ISO_8859_1);
+        try {
+            for (String line : lines){
+                out.write(line);
+                out.newLine();
+            }
+            out.newLine();
+            for (String word : words){
+                out.write(word);
+                out.newLine();
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static int height(int col){
+        return (col%2==0) ? 7 : 8; // the even columns have one cell less
+    }
+}
@@ -0,0 +1,143 @@
+package bookworm;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of the word search: the time of a single lookup, the throughput over a whole dictionary,
+ * and the worst cases (a board of one repeated letter, a board full of 'QU' tiles, and long misses).
+ *
+ * @author Paul Macfarlane
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FindWordBenchmark
+{
+    @Param({"42"})
+    public long seed;
+
+    @Param({"10000"})
+    public int dictionarySize;
+
+    @Param({"0.2"})
+    public double hitRatio;
+
+    @Param({"8"})
+    public int missLength;
+
+    private Bookworm book;
+    private List<String> dictionary;
+    private WordTrie trie;
+    private String hit;
+    private String miss;
+
+    private Bookworm repeated;
+    private String repeatedMiss;
+    private Bookworm quHeavy;
+    private List<String> quWords;
+
+    private int next; // the next word of the dictionary for the single lookups
+
+    @Setup
+    public void setUp(){
+        BoardGenerator generator = new BoardGenerator(seed);
+        String[] lines = generator.board();
+        book = new Bookworm(lines);
+        dictionary = generator.dictionary(lines, dictionarySize, hitRatio);
+        trie = new WordTrie(dictionary);
+        hit = generator.walk(book, 6);
+        miss = generator.miss(book, 6);
+
+        repeated = new Bookworm(BoardGenerator.repeated('E'));
+        repeatedMiss = BoardGenerator.longMiss('E', missLength);
+
+        String[] quLines = generator.quHeavy();
+        quHeavy = new Bookworm(quLines);
+        quWords = generator.dictionary(quLines, 1000, 0.5);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean lookupHit(){
+        return book.findWord(hit);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean lookupMiss(){
+        return book.findWord(miss);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean lookupDictionaryWord(){
+        String word = dictionary.get(next);
+        next = (next + 1 == dictionary.size()) ? 0 : next + 1;
+        return book.findWord(word);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void dictionaryFindWord(Blackhole hole){
+        for (String word : dictionary){
+            hole.consume(book.findWord(word));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public boolean[] dictionaryCheckAll(){
+        return book.checkAll(dictionary);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public boolean[] dictionaryCheckSorted(){
+        return book.checkSorted(dictionary);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public Object dictionarySolve(){
+        return book.solve(trie);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean worstRepeatedLetters(){
+        return repeated.findWord(repeatedMiss);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void worstQuHeavy(Blackhole hole){
+        for (String word : quWords){
+            hole.consume(quHeavy.findWord(word));
+        }
+    }
+}
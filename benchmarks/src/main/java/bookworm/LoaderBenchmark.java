@@ -0,0 +1,91 @@
+package bookworm;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of loading an input file: reading just the board, and streaming every word after it.
+ *
+ * @author Paul Macfarlane
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LoaderBenchmark
+{
+    @Param({"42"})
+    public long seed;
+
+    @Param({"100000"})
+    public int dictionarySize;
+
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        BoardGenerator generator = new BoardGenerator(seed);
+        String[] lines = generator.board();
+        file = Files.createTempFile("bookworm", ".txt");
+        BoardGenerator.write(lines, generator.dictionary(lines, dictionarySize, 0.2), file);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Bookworm loadBoard() throws IOException {
+        return new Bookworm(file.toString());
+    }
+
+    @Benchmark
+    public void loadBoardAndWords(Blackhole hole) throws IOException {
+        BoardReader in = new BoardReader(file.toString());
+        try {
+            hole.consume(new Bookworm(in.readBoard()));
+            String word;
+            while ((word = in.nextWord()) != null){
+                hole.consume(word);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    @Benchmark
+    public WordTrie loadIntoTrie() throws IOException {
+        BoardReader in = new BoardReader(file.toString());
+        try {
+            in.readBoard();
+            WordTrie trie = new WordTrie();
+            String word;
+            while ((word = in.nextWord()) != null){
+                trie.add(word);
+            }
+            return trie;
+        } finally {
+            in.close();
+        }
+    }
+}